@@ -2,14 +2,15 @@ package todo;
 
 import todo.model.Priority;
 import todo.model.Task;
+import todo.model.TaskListModel;
+import todo.storage.TaskJournal;
 import todo.storage.TaskStorage;
+import todo.storage.TaskWriter;
 import todo.util.DateUtil;
 import todo.view.FilteredSortedListModel;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.event.ListDataEvent;
-import javax.swing.event.ListDataListener;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.datatransfer.Transferable;
@@ -22,7 +23,9 @@ import java.util.List;
 
 public class MainFrame extends JFrame {
     private final Path storagePath = TaskStorage.defaultPath();
-    private final DefaultListModel<Task> model = new DefaultListModel<>();
+    // Stall detection and per-action latencies (Help → Diagnostics; logged to tasks.txt.diag.log)
+    private final todo.diag.EdtMonitor monitor = todo.diag.EdtMonitor.install(storagePath.resolveSibling(storagePath.getFileName() + ".diag.log"));
+    private final TaskListModel model = new TaskListModel();
     private final FilteredSortedListModel viewModel = new FilteredSortedListModel(model);
     private final Deque<List<Task>> undoStack = new ArrayDeque<>();
     private final todo.undo.UndoManager undoManager = new todo.undo.UndoManager();
@@ -33,11 +36,18 @@ public class MainFrame extends JFrame {
     private final JSpinner dueSpinner = new JSpinner(new javax.swing.SpinnerDateModel());
     private final JComboBox<Priority> priorityBox = new JComboBox<>(Priority.values());
     private final JTextField searchField = new JTextField(16);
+    private final Timer searchDebounce = new Timer(Integer.getInteger("todo.search.debounceMs", 150), monitor.timed("Search", e -> refreshView()));
+    private static final java.util.Set<String> PRESETS = java.util.Set.of("Today", "Overdue", "High Priority");
     private final JComboBox<String> filterBox = new JComboBox<>(new String[]{"All", "Active", "Completed"});
-    private final JComboBox<String> sortBox = new JComboBox<>(new String[]{"Added", "Title", "Due Soon", "Priority"});
+    private final JComboBox<String> sortBox = new JComboBox<>(new String[]{"Added", "Title", "Due Soon", "Priority", "Priority › Due › Title", "Due › Priority › Title", "Manual"});
     private final JLabel status = new JLabel();
     private final JList<Task> taskList = new JList<>(viewModel);
+    private final todo.ui.TaskCellRenderer renderer = new todo.ui.TaskCellRenderer();
     private final todo.reminder.ReminderScheduler reminder = new todo.reminder.ReminderScheduler();
+    // Journaled storage (default) appends deltas instead of rewriting tasks.txt; -Dtodo.journal=false restores full saves.
+    private final boolean journaled = !"false".equalsIgnoreCase(System.getProperty("todo.journal"));
+    private TaskJournal journal;
+    private final TaskWriter writer = TaskWriter.withDefaultWindow(storagePath);
 
     public MainFrame() {
         super("To-Do");
@@ -45,13 +55,15 @@ public class MainFrame extends JFrame {
 
         buildUI();
         wireActions();
-        TaskStorage.load(storagePath, model);
+        // Always open the journal so a tail left by a previous session is recovered.
+        journal = TaskJournal.open(storagePath, model);
+        if (!journaled) { journal.close(); journal = null; }
         updateStatus();
         // Schedule reminders for loaded tasks
         reminder.rescheduleAll(model);
 
         addWindowListener(new WindowAdapter() {
-            @Override public void windowClosing(WindowEvent e) { TaskStorage.save(storagePath, model); }
+            @Override public void windowClosing(WindowEvent e) { if (journal != null) journal.close(); else writer.close(); monitor.close(); }
         });
 
         pack();
@@ -104,7 +116,8 @@ public class MainFrame extends JFrame {
         inputPanel.add(addButton, BorderLayout.EAST);
 
         // List and renderer
-        taskList.setCellRenderer(new todo.ui.TaskCellRenderer());
+        taskList.setCellRenderer(renderer);
+        applyRowMode();
         taskList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         taskList.setToolTipText("Click to toggle. Double-click to edit. Space toggles. Delete removes.");
         JScrollPane listScroll = new JScrollPane(taskList);
@@ -115,6 +128,7 @@ public class MainFrame extends JFrame {
         topStack.add(toolBar); topStack.add(Box.createVerticalStrut(6)); topStack.add(filterBar); topStack.add(inputPanel);
         root.add(topStack, BorderLayout.NORTH);
         root.add(listScroll, BorderLayout.CENTER);
+        root.add(new todo.ui.TagPanel(viewModel.facetIndex(), tag -> searchField.setText("tag:" + tag)), BorderLayout.WEST);
         JPanel actionBar = new JPanel(new BorderLayout()); actionBar.add(status, BorderLayout.WEST);
         root.add(actionBar, BorderLayout.SOUTH);
         setContentPane(root);
@@ -145,15 +159,8 @@ public class MainFrame extends JFrame {
         taskList.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, 0), "toggleComplete");
         taskList.getActionMap().put("toggleComplete", new AbstractAction() {
             @Override public void actionPerformed(ActionEvent e) {
-                int[] indices = taskList.getSelectedIndices();
-                for (int i : indices) {
-                    Task t = viewModel.getElementAt(i);
-                    t.completed = !t.completed;
-                    int src = indexOfModel(t);
-                    if (src >= 0) model.set(src, t);
-                }
-                TaskStorage.save(storagePath, model);
-                updateStatus();
+                // Take the tasks first: the toggle may move or hide their rows in the view.
+                toggleCompleted(taskList.getSelectedValuesList());
             }
         });
         taskList.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "delete");
@@ -167,9 +174,9 @@ public class MainFrame extends JFrame {
                     if (index >= 0) {
                         Task t = viewModel.getElementAt(index);
                         t.completed = !t.completed;
-                        int src = indexOfModel(t);
+                        int src = model.indexOf(t);
                         if (src >= 0) model.set(src, t);
-                        TaskStorage.save(storagePath, model);
+                        persist();
                         reminder.schedule(t);
                         updateStatus();
                     }
@@ -178,9 +185,9 @@ public class MainFrame extends JFrame {
                     if (index >= 0) {
                         Task t = viewModel.getElementAt(index);
                         if (todo.ui.EditTaskDialog.open(MainFrame.this, t)) {
-                            int src = indexOfModel(t);
+                            int src = model.indexOf(t);
                             if (src >= 0) model.set(src, t);
-                            TaskStorage.save(storagePath, model);
+                            persist();
                             reminder.schedule(t);
                             updateStatus();
                         }
@@ -198,8 +205,8 @@ public class MainFrame extends JFrame {
                 @Override public void actionPerformed(ActionEvent e) {
                     int idx = taskList.getSelectedIndex(); if (idx < 0) return;
                     Task t = viewModel.getElementAt(idx); t.priority = p;
-                    int src = indexOfModel(t); if (src >= 0) model.set(src, t);
-                    TaskStorage.save(storagePath, model);
+                    int src = model.indexOf(t); if (src >= 0) model.set(src, t);
+                    persist();
                 }
             }));
         }
@@ -210,14 +217,15 @@ public class MainFrame extends JFrame {
                 Task t = viewModel.getElementAt(idx);
                 Long chosen = openDueDatePicker(t.dueAtMillis);
                 t.dueAtMillis = chosen;
-                int src = indexOfModel(t); if (src >= 0) model.set(src, t);
-                TaskStorage.save(storagePath, model);
+                int src = model.indexOf(t); if (src >= 0) model.set(src, t);
+                persist();
                 reminder.schedule(t);
             }
         }));
         taskList.setComponentPopupMenu(context);
 
-        // Enable drag & drop reordering on the list
+        // Drag & drop reordering (in the Manual sort): the moved tasks are re-ranked between their new
+        // neighbours in the view, so nothing else in the list, the view or the journal changes.
         taskList.setDragEnabled(true);
         taskList.setDropMode(DropMode.INSERT);
         taskList.setTransferHandler(new TransferHandler() {
@@ -227,44 +235,53 @@ public class MainFrame extends JFrame {
                 indices = taskList.getSelectedIndices();
                 return new StringSelection("move");
             }
-            @Override public boolean canImport(TransferSupport support) { return support.isDrop(); }
+            @Override public boolean canImport(TransferSupport support) { return support.isDrop() && "Manual".equals(sortBox.getSelectedItem()); }
             @Override public boolean importData(TransferSupport support) {
-                if (!support.isDrop() || indices == null) return false;
-                JList.DropLocation dl = (JList.DropLocation) support.getDropLocation();
-                int index = dl.getIndex();
-                // Move in backing model according to visible indices
-                java.util.List<Task> moving = new java.util.ArrayList<>();
-                for (int i = indices.length-1; i>=0; i--) moving.add(0, viewModel.getElementAt(indices[i]));
-                // Remove originals
-                for (Task t : moving) { int src=indexOfModel(t); if (src>=0) model.remove(src); }
-                // Compute target index in model based on visible index
-                Task anchor = null; if (index<taskList.getModel().getSize()) anchor = viewModel.getElementAt(index);
-                int modelTarget = anchor==null ? model.getSize() : indexOfModel(anchor);
-                for (Task t : moving) { model.add(modelTarget++, t); }
-                TaskStorage.save(storagePath, model); return true;
+                if (!canImport(support) || indices == null) return false;
+                int index = ((JList.DropLocation) support.getDropLocation()).getIndex();
+                List<Task> moving = new ArrayList<>(indices.length);
+                for (int i : indices) moving.add(viewModel.getElementAt(i));
+                // nearest rows above and below the drop point that are not being moved
+                Task after = null, before = null;
+                for (int r = index - 1; r >= 0 && after == null; r--) if (java.util.Arrays.binarySearch(indices, r) < 0) after = viewModel.getElementAt(r);
+                for (int r = index; r < viewModel.getSize() && before == null; r++) if (java.util.Arrays.binarySearch(indices, r) < 0) before = viewModel.getElementAt(r);
+                model.move(moving, after, before);
+                persist();
+                int first = index - (int) java.util.Arrays.stream(indices).filter(i -> i < index).count(); // moved rows land together here
+                taskList.setSelectionInterval(first, first + moving.size() - 1);
+                return true;
             }
         });
 
-        // Model change listeners update status
-        model.addListDataListener(new ListDataListener() {
-            @Override public void intervalAdded(ListDataEvent e) { updateStatus(); }
-            @Override public void intervalRemoved(ListDataEvent e) { updateStatus(); }
-            @Override public void contentsChanged(ListDataEvent e) { updateStatus(); }
-        });
+        // Status follows the running totals (refreshed once per burst of changes)
+        viewModel.stats().addListener(this::updateStatus);
 
-        // Filter/search/sort wiring
-        Runnable refresh = () -> viewModel.setFilterAndSort((String) filterBox.getSelectedItem(), searchField.getText(), (String) sortBox.getSelectedItem());
+        // Filter/search/sort wiring: large lists are filtered off the EDT, and typing is debounced
+        // (-Dtodo.search.debounceMs, default 150) so a word costs one search, not one per keystroke.
+        Runnable refresh = this::refreshView;
+        searchDebounce.setRepeats(false);
         filterBox.addActionListener(e -> refresh.run());
         sortBox.addActionListener(e -> refresh.run());
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { refresh.run(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { refresh.run(); }
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { refresh.run(); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { searchDebounce.restart(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { searchDebounce.restart(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { searchDebounce.restart(); }
         });
         refresh.run();
 
+        // Presets and saved searches are materialized views, kept up to date as tasks change
+        todo.view.SavedViews views = viewModel.views();
+        views.define("Today", "due:today is:open");
+        views.define("Overdue", "due<today is:open");
+        views.define("High Priority", "priority>=HIGH");
+        TaskStorage.loadSavedSearches(storagePath).forEach(views::define);
+
         // Menu bar
         setJMenuBar(buildMenuBar(addAction, deleteAction, undoDelete, clearDoneAction, markAllDone, markAllActive, exportAction, importAction, focusSearch));
+
+        // Time everything wired above: menu items, buttons, the filter/sort boxes and the key bindings
+        filterBox.setName("Filter"); sortBox.setName("Sort");
+        monitor.instrument(getJMenuBar(), getContentPane(), taskList.getComponentPopupMenu());
     }
 
     private JMenuBar buildMenuBar(Action addAction, Action deleteAction, Action undoDelete, Action clearDoneAction,
@@ -279,9 +296,9 @@ public class MainFrame extends JFrame {
         file.add(miExport); file.add(miImport);
         file.add(new JMenuItem(new AbstractAction("Export JSON…") {
             @Override public void actionPerformed(ActionEvent e) {
-                JFileChooser fc = new JFileChooser(); fc.setDialogTitle("Export JSON");
+                JFileChooser fc = new JFileChooser(); fc.setDialogTitle("Export JSON (name it .json.gz to compress)");
                 if (fc.showSaveDialog(MainFrame.this) == JFileChooser.APPROVE_OPTION) {
-                    TaskStorage.saveJson(fc.getSelectedFile().toPath(), model);
+                    exportJson(fc.getSelectedFile().toPath());
                 }
             }
         }));
@@ -291,17 +308,18 @@ public class MainFrame extends JFrame {
                 if (fc.showOpenDialog(MainFrame.this) == JFileChooser.APPROVE_OPTION) {
                     DefaultListModel<Task> tmp = new DefaultListModel<>();
                     TaskStorage.loadJson(fc.getSelectedFile().toPath(), tmp);
-                    for (int i = 0; i < tmp.size(); i++) model.addElement(tmp.get(i));
+                    importAll(tmp);
                 }
             }
         }));
-        file.add(new JMenuItem(new AbstractAction("Archive Completed…") {
+        file.add(new JMenuItem(new AbstractAction("Archive Completed") {
             @Override public void actionPerformed(ActionEvent e) {
-                JFileChooser fc = new JFileChooser(); fc.setDialogTitle("Archive Completed to JSON");
-                if (fc.showSaveDialog(MainFrame.this) == JFileChooser.APPROVE_OPTION) {
-                    TaskStorage.archiveCompleted(fc.getSelectedFile().toPath(), model);
-                    TaskStorage.save(storagePath, model);
-                }
+                // Appends a new compressed segment next to tasks.txt; earlier archives are kept.
+                Path dir = todo.storage.TaskArchive.defaultDir(storagePath);
+                int before = model.size();
+                TaskStorage.archiveCompleted(dir, model);
+                persist();
+                JOptionPane.showMessageDialog(MainFrame.this, "Archived " + (before - model.size()) + " completed tasks to " + dir.toAbsolutePath());
             }
         }));
         file.add(new JMenuItem(new AbstractAction("Export Visible as Markdown…") {
@@ -336,14 +354,14 @@ public class MainFrame extends JFrame {
         for (Priority p : Priority.values()) {
             bulk.add(new JMenuItem(new AbstractAction("Set Priority: "+p.label) {
                 @Override public void actionPerformed(ActionEvent e) {
-                    int[] idx = taskList.getSelectedIndices(); if (idx.length==0) return; for (int i: idx){ Task t=viewModel.getElementAt(i); t.priority=p; int src=indexOfModel(t); if(src>=0) model.set(src,t);} TaskStorage.save(storagePath, model);
+                    List<Task> sel = taskList.getSelectedValuesList(); if (sel.isEmpty()) return; TaskListModel.Batch b = model.batch(); for (Task t: sel){ t.priority=p; b.changed(t);} b.commit(); persist();
                 }
             }));
         }
         bulk.add(new JMenuItem(new AbstractAction("Set Due Date for Selected…") {
             @Override public void actionPerformed(ActionEvent e) {
                 Long chosen = openDueDatePicker(null);
-                int[] idx = taskList.getSelectedIndices(); if (idx.length==0) return; for (int i: idx){ Task t=viewModel.getElementAt(i); t.dueAtMillis=chosen; int src=indexOfModel(t); if(src>=0) model.set(src,t);} TaskStorage.save(storagePath, model);
+                List<Task> sel = taskList.getSelectedValuesList(); if (sel.isEmpty()) return; TaskListModel.Batch b = model.batch(); for (Task t: sel){ t.dueAtMillis=chosen; b.changed(t);} b.commit(); persist();
             }
         }));
         actions.add(bulk);
@@ -354,30 +372,51 @@ public class MainFrame extends JFrame {
         JCheckBoxMenuItem miDesc = new JCheckBoxMenuItem(new AbstractAction("Show Descriptions") {
             @Override public void actionPerformed(ActionEvent e) {
                 todo.ui.TaskCellRenderer.showDescription = ((JCheckBoxMenuItem)e.getSource()).getState();
-                taskList.repaint();
+                applyRowMode();
             }
         });
         miDesc.setState(todo.ui.TaskCellRenderer.showDescription);
         view.add(miDesc);
-        view.add(new JMenuItem(new AbstractAction("Preset: Today") {
+        JCheckBoxMenuItem miCompact = new JCheckBoxMenuItem(new AbstractAction("Compact Rows") {
             @Override public void actionPerformed(ActionEvent e) {
-                String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
-                searchField.setText("due<"+today+" due>"+today); // between yesterday and tomorrow won't match; set filter to Active + query title today
-                filterBox.setSelectedItem("Active");
+                todo.ui.TaskCellRenderer.compact = ((JCheckBoxMenuItem)e.getSource()).getState();
+                applyRowMode();
             }
-        }));
-        view.add(new JMenuItem(new AbstractAction("Preset: Overdue") {
-            @Override public void actionPerformed(ActionEvent e) {
-                String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
-                searchField.setText("due<"+today);
-                filterBox.setSelectedItem("Active");
-            }
-        }));
-        view.add(new JMenuItem(new AbstractAction("Preset: High Priority") {
-            @Override public void actionPerformed(ActionEvent e) {
-                searchField.setText("priority>=HIGH");
+        });
+        miCompact.setState(todo.ui.TaskCellRenderer.compact);
+        view.add(miCompact);
+        // Presets and saved searches with live counts, listed fresh each time the menu opens
+        view.addSeparator();
+        int viewsAt = view.getMenuComponentCount();
+        view.addMenuListener(new javax.swing.event.MenuListener() {
+            @Override public void menuSelected(javax.swing.event.MenuEvent e) {
+                while (view.getMenuComponentCount() > viewsAt) view.remove(viewsAt);
+                JMenu remove = new JMenu("Remove Saved Search");
+                for (todo.view.SavedViews.View v : viewModel.views().views()) {
+                    view.add(new JMenuItem(new AbstractAction((PRESETS.contains(v.name()) ? "Preset: " : "") + v.name() + " (" + v.count() + ")") {
+                        @Override public void actionPerformed(ActionEvent ev) { showSearch(v.query()); }
+                    }));
+                    if (!PRESETS.contains(v.name())) remove.add(new JMenuItem(new AbstractAction(v.name()) {
+                        @Override public void actionPerformed(ActionEvent ev) { viewModel.views().remove(v.name()); saveSearches(); }
+                    }));
+                }
+                view.addSeparator();
+                view.add(new JMenuItem(new AbstractAction("Save Search…") {
+                    @Override public void actionPerformed(ActionEvent ev) {
+                        String q = searchField.getText().trim();
+                        if (q.isEmpty()) { JOptionPane.showMessageDialog(MainFrame.this, "Type a search first."); return; }
+                        String name = JOptionPane.showInputDialog(MainFrame.this, "Name for \"" + q + "\":");
+                        if (name == null || name.isBlank() || PRESETS.contains(name.trim())) return;
+                        viewModel.views().define(name.trim(), q);
+                        saveSearches();
+                    }
+                }));
+                if (remove.getItemCount() > 0) view.add(remove);
+                monitor.instrument(view);
             }
-        }));
+            @Override public void menuDeselected(javax.swing.event.MenuEvent e) {}
+            @Override public void menuCanceled(javax.swing.event.MenuEvent e) {}
+        });
 
         JMenu tools = new JMenu("Tools");
         JMenuItem miQuickAdd = new JMenuItem(new AbstractAction("Quick Add…") {
@@ -392,7 +431,8 @@ public class MainFrame extends JFrame {
         JMenuItem miQuick = new JMenuItem(new AbstractAction("Quick Help") { @Override public void actionPerformed(ActionEvent e) { showHelpDialog(); } });
         miQuick.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F1, 0));
         JMenuItem miAbout = new JMenuItem(new AbstractAction("About") { @Override public void actionPerformed(ActionEvent e) { showAboutDialog(); } });
-        help.add(miQuick); help.addSeparator(); help.add(miAbout);
+        JMenuItem miDiag = new JMenuItem(new AbstractAction("Diagnostics…") { @Override public void actionPerformed(ActionEvent e) { new todo.ui.DiagnosticsDialog(MainFrame.this, monitor).setVisible(true); } });
+        help.add(miQuick); help.add(miDiag); help.addSeparator(); help.add(miAbout);
 
         bar.add(file); bar.add(actions); bar.add(view); bar.add(tools); bar.add(help);
         return bar;
@@ -410,7 +450,7 @@ public class MainFrame extends JFrame {
         t.title = s.replaceAll("[#@!][^\\s]+", "").trim();
         if (t.title.isBlank()) t.title = input.trim();
         model.addElement(t);
-        TaskStorage.save(storagePath, model);
+        persist();
     }
 
     private void addTaskFromInputs() {
@@ -421,7 +461,7 @@ public class MainFrame extends JFrame {
         }
         Task t = new Task(title, false);
         String desc = descArea.getText().trim();
-        if (!desc.isEmpty()) t.note = desc;
+        if (!desc.isEmpty()) t.setNote(desc);
         t.priority = (Priority) priorityBox.getSelectedItem();
         if (dueEnable.isSelected()) {
             java.util.Date date = (java.util.Date) dueSpinner.getValue();
@@ -429,39 +469,86 @@ public class MainFrame extends JFrame {
         }
         model.addElement(t);
         titleField.setText(""); descArea.setText(""); dueEnable.setSelected(false); dueSpinner.setEnabled(false);
-        TaskStorage.save(storagePath, model);
+        persist();
         // Undo: remove the added task; Redo: add it back
         Task added = t;
         undoManager.apply(new todo.undo.Command() {
-            @Override public void execute() { if (indexOfModel(added) < 0) { model.addElement(added); TaskStorage.save(storagePath, model);} }
-            @Override public void undo() { int i=indexOfModel(added); if (i>=0) { model.remove(i); TaskStorage.save(storagePath, model);} }
+            @Override public void execute() { if (model.indexOf(added) < 0) { model.releaseTakenRanks(List.of(added)); model.addElement(added); persist();} }
+            @Override public void undo() { int i=model.indexOf(added); if (i>=0) { model.remove(i); persist();} }
         });
     }
 
+    // Bulk actions are one model batch each: one view update, one journal write, one undo step.
     private void clearCompleted() {
-        for (int i = model.size() - 1; i >= 0; i--) if (model.get(i).completed) model.remove(i);
-        TaskStorage.save(storagePath, model);
+        List<Task> done = new ArrayList<>();
+        for (int i = 0; i < model.size(); i++) if (model.get(i).completed) done.add(model.get(i));
+        if (done.isEmpty()) return;
+        // Execute: remove them; Undo: append them again (in their old order and manual-order place)
+        undoManager.apply(new todo.undo.Command() {
+            @Override public void execute() { model.batch().removeAll(done).commit(); persist(); }
+            @Override public void undo() { addBack(done); }
+        });
     }
 
     private void setAllCompleted(boolean completed) {
-        for (int i = 0; i < model.size(); i++) { model.get(i).completed = completed; model.set(i, model.get(i)); }
-        TaskStorage.save(storagePath, model);
+        List<Task> flipped = new ArrayList<>();
+        for (int i = 0; i < model.size(); i++) if (model.get(i).completed != completed) flipped.add(model.get(i));
+        if (flipped.isEmpty()) return;
+        undoManager.apply(new todo.undo.Command() {
+            @Override public void execute() { setCompleted(flipped, completed); }
+            @Override public void undo() { setCompleted(flipped, !completed); }
+        });
+    }
+
+    // Space: marks the selection completed, or active again if all of it already is, as one batch and one
+    // undo step.
+    private void toggleCompleted(List<Task> selected) {
+        boolean completed = selected.stream().anyMatch(t -> !t.completed);
+        List<Task> flipped = new ArrayList<>();
+        for (Task t : selected) if (t.completed != completed) flipped.add(t);
+        if (flipped.isEmpty()) return;
+        undoManager.apply(new todo.undo.Command() {
+            @Override public void execute() { setCompleted(flipped, completed); }
+            @Override public void undo() { setCompleted(flipped, !completed); }
+        });
+    }
+
+    private void setCompleted(List<Task> tasks, boolean completed) {
+        TaskListModel.Batch b = model.batch();
+        for (Task t : tasks) { t.completed = completed; b.changed(t); }
+        b.commit();
+        persist();
+    }
+
+    // Re-add removed tasks at their old place in the manual order (see TaskListModel.releaseTakenRanks).
+    private void addBack(List<Task> tasks) {
+        model.releaseTakenRanks(tasks);
+        TaskListModel.Batch b = model.batch();
+        for (Task t : tasks) if (model.indexOf(t) < 0) b.add(t);
+        b.commit();
+        persist();
+    }
+
+    private void importAll(DefaultListModel<Task> loaded) {
+        List<Task> tasks = new ArrayList<>(loaded.size());
+        for (int i = 0; i < loaded.size(); i++) tasks.add(loaded.get(i));
+        if (tasks.isEmpty()) return;
+        // Execute: append them, last in the manual order too (ranks from the file belong to another list
+        // and would interleave with or tie existing ones); Undo: remove them again
+        undoManager.apply(new todo.undo.Command() {
+            @Override public void execute() { for (Task t : tasks) t.rank = 0; addBack(tasks); }
+            @Override public void undo() { model.batch().removeAll(tasks).commit(); persist(); }
+        });
     }
 
     private void deleteSelectedTasks() {
         int[] selected = taskList.getSelectedIndices(); if (selected.length == 0) return;
-        List<Task> removed = new ArrayList<>();
-        for (int i = selected.length - 1; i >= 0; i--) {
-            Task t = viewModel.getElementAt(selected[i]);
-            removed.add(0, t);
-            int src = indexOfModel(t);
-            if (src >= 0) model.remove(src);
-        }
-        TaskStorage.save(storagePath, model);
-        // Undo: re-add removed tasks in order; Redo: remove them again
+        List<Task> removed = new ArrayList<>(selected.length);
+        for (int i : selected) removed.add(viewModel.getElementAt(i));
+        // Execute: remove the tasks; Undo: re-add them in order (one batch each)
         undoManager.apply(new todo.undo.Command() {
-            @Override public void execute() { for (Task t : removed) if (indexOfModel(t)<0) model.addElement(t); TaskStorage.save(storagePath, model);} 
-            @Override public void undo() { for (int i=model.size()-1;i>=0;i--){ if(removed.contains(model.get(i))) model.remove(i);} TaskStorage.save(storagePath, model);} 
+            @Override public void execute() { model.batch().removeAll(removed).commit(); persist(); }
+            @Override public void undo() { addBack(removed); }
         });
     }
 
@@ -469,7 +556,7 @@ public class MainFrame extends JFrame {
         if (undoStack.isEmpty()) return;
         List<Task> last = undoStack.pop();
         for (Task t : last) model.addElement(t);
-        TaskStorage.save(storagePath, model);
+        persist();
     }
 
     private void exportTasks() {
@@ -477,18 +564,54 @@ public class MainFrame extends JFrame {
         if (fc.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) TaskStorage.save(fc.getSelectedFile().toPath(), model);
     }
 
+    // Export on a background thread with a progress monitor; the model is snapshotted up front, here on
+    // the EDT, so edits made while the export runs (or a batch mid-commit) never reach the file.
+    private void exportJson(Path path) {
+        Object[] snapshot = model.toArray();
+        ProgressMonitor pm = new ProgressMonitor(this, "Exporting " + snapshot.length + " tasks…", null, 0, 100);
+        pm.setMillisToDecideToPopup(200);
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override protected Void doInBackground() {
+                TaskStorage.saveJson(path, snapshot, path.toString().endsWith(".gz"),
+                        (done, total) -> setProgress(total == 0 ? 100 : (int) (100L * done / total)));
+                return null;
+            }
+            @Override protected void done() { pm.close(); }
+        };
+        worker.addPropertyChangeListener(ev -> { if ("progress".equals(ev.getPropertyName())) pm.setProgress((Integer) ev.getNewValue()); });
+        worker.execute();
+    }
+
     private void importTasks() {
         JFileChooser fc = new JFileChooser(); fc.setDialogTitle("Import Tasks");
         if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             DefaultListModel<Task> tmp = new DefaultListModel<>();
             TaskStorage.load(fc.getSelectedFile().toPath(), tmp);
-            for (int i = 0; i < tmp.size(); i++) model.addElement(tmp.get(i));
+            importAll(tmp);
+        }
+    }
+
+    // Compact rows all have one height, so the list never measures them; otherwise rows are measured
+    // (through the renderer's size cache). Changing the fixed size also makes the list drop its row layout.
+    private void applyRowMode() {
+        taskList.setFixedCellHeight(0);
+        if (todo.ui.TaskCellRenderer.compact) {
+            taskList.setFixedCellWidth(100); // cells span the viewport anyway
+            taskList.setFixedCellHeight(renderer.compactHeight(taskList));
+        } else {
+            taskList.setFixedCellWidth(-1);
+            taskList.setFixedCellHeight(-1);
         }
     }
 
     private void updateStatus() {
-        int total = model.getSize(); int done = 0; for (int i = 0; i < total; i++) if (model.get(i).completed) done++;
-        status.setText(total + " tasks • " + done + " completed");
+        todo.view.TaskStats stats = viewModel.stats();
+        List<Task> next = viewModel.nextDue(1);
+        status.setText(stats.total() + " tasks • " + stats.completed() + " completed" + (stats.overdue() > 0 ? " • " + stats.overdue() + " overdue" : "")
+                + (next.isEmpty() ? "" : " • next due " + DateUtil.formatDue(next.get(0).dueAtMillis) + ": " + next.get(0).title));
+        String render = todo.ui.TaskCellRenderer.stats();
+        status.setToolTipText(stats + "; " + (journal == null ? writer + "; " : "") + viewModel.textIndex() + "; " + viewModel.resultCache() + "; " + monitor
+                + (render == null ? "" : "; " + render));
     }
 
     private void showHelpDialog() {
@@ -510,8 +633,28 @@ public class MainFrame extends JFrame {
         JOptionPane.showMessageDialog(this, msg, "About", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private void refreshView() {
+        viewModel.submitFilterAndSort((String) filterBox.getSelectedItem(), searchField.getText(), (String) sortBox.getSelectedItem());
+    }
+
+    // Switch to a preset or saved search right away (no typing debounce).
+    private void showSearch(String query) {
+        searchField.setText(query);
+        filterBox.setSelectedItem("All");
+        searchDebounce.stop();
+        refreshView();
+    }
+
+    private void saveSearches() {
+        java.util.Map<String, String> user = new java.util.LinkedHashMap<>();
+        for (todo.view.SavedViews.View v : viewModel.views().views()) if (!PRESETS.contains(v.name())) user.put(v.name(), v.query());
+        TaskStorage.saveSavedSearches(storagePath, user);
+    }
+
+    // In journaled mode every model event is already recorded; otherwise queue a coalesced background save.
+    private void persist() { if (journal == null) writer.request(model); }
+
     private static String oneLine(String s) { return s.replace('\n', ' ').replace('\r', ' ').trim(); }
-    private int indexOfModel(Task t) { for (int i = 0; i < model.size(); i++) if (model.get(i) == t) return i; return -1; }
 
     // Date picker dialog for due date with enable/disable.
     private Long openDueDatePicker(Long currentMillis) {
@@ -0,0 +1,363 @@
+package todo.diag;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Watches the EDT. The event queue is replaced by one that notes when the EDT leaves it (an event
+// handed out) and comes back for the next one; a stretch of work longer than -Dtodo.edt.stallMs
+// (default 200, 0 = off) is a stall. A watchdog thread samples the EDT's stack while a stall is in
+// progress, and the stall is recorded with the most frequent sample, the action that was running
+// and the event that started it. Actions and listeners wrapped by instrument()/timed() get a latency
+// histogram each; time spent waiting in a nested event loop (a modal dialog) is not counted.
+// Stalls and, on close, the histograms go to a log file; both are also JFR events (todo.EdtStall,
+// todo.UiAction), so a recording lines them up with GC pauses.
+public final class EdtMonitor {
+    private static final int KEEP_STALLS = 50, MAX_SAMPLES = 32, STACK_DEPTH = 40;
+    private static final long LOG_ROLL_BYTES = 1 << 20;
+
+    private final Path log;
+    private final long stallNanos;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "edt-monitor-log"); t.setDaemon(true); return t;
+    });
+    // EDT only
+    private final Map<String, LatencyHistogram> actions = new HashMap<>();
+    private final ArrayDeque<Stall> stalls = new ArrayDeque<>();
+    private long stallCount, longestStall, idleNanos;
+    private AWTEvent lastEvent;
+    private String endedAction; // last timed action to finish in the current stretch
+    private StallEvent stallJfr;
+    private final StallEvent stallProbe = new StallEvent();
+    // EDT writes, watchdog reads
+    private volatile long busySince; // 0 = waiting for events
+    private volatile int segment;
+    private volatile Thread edt;
+    private volatile String action;
+    // watchdog samples of the current stall, guarded by samples
+    private final List<StackTraceElement[]> samples = new ArrayList<>();
+    private int sampledSegment = -1;
+    private String sampledAction;
+    private volatile boolean running = true;
+
+    private EdtMonitor(Path log, long stallMillis) {
+        this.log = log;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+    }
+
+    // Start watching: push the timing queue and start the watchdog. Stalls are logged to log.
+    public static EdtMonitor install(Path log) {
+        EdtMonitor m = new EdtMonitor(log, Long.getLong("todo.edt.stallMs", 200));
+        m.rollLog();
+        if (m.stallNanos > 0) {
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(m.new TimingQueue());
+            Thread w = new Thread(m::watch, "edt-watchdog");
+            w.setDaemon(true);
+            w.start();
+        }
+        return m;
+    }
+
+    public Path log() { return log; }
+    public long stallMillis() { return TimeUnit.NANOSECONDS.toMillis(stallNanos); }
+
+    // ---- actions ----
+
+    // Time every action listener (and Action) under roots: buttons and menu items (by their text),
+    // combo boxes and text fields (by their name), and the components' own key-binding actions (by
+    // their key). Safe to call again on a grown tree (e.g. a menu rebuilt when it opens).
+    public void instrument(Component... roots) {
+        for (Component c : roots) walk(c);
+    }
+
+    private void walk(Component c) {
+        if (c instanceof AbstractButton b && !(c instanceof JMenu)) {
+            if (b.getAction() != null && !(b.getAction() instanceof TimedAction)) rebind(b);
+            wrap(b.getText(), b.getActionListeners(), b::removeActionListener, b::addActionListener);
+        } else if (c instanceof JComboBox<?> box) wrap(box.getName(), box.getActionListeners(), box::removeActionListener, box::addActionListener);
+        else if (c instanceof JTextField f) wrap(f.getName(), f.getActionListeners(), f::removeActionListener, f::addActionListener);
+        if (c instanceof JComponent jc && jc.getActionMap().keys() != null) {
+            ActionMap map = jc.getActionMap();
+            for (Object key : map.keys()) if (!(map.get(key) instanceof TimedAction)) map.put(key, timed(String.valueOf(key), map.get(key)));
+        }
+        if (c instanceof JMenu m) for (Component item : m.getMenuComponents()) walk(item);
+        if (c instanceof Container box) for (Component child : box.getComponents()) walk(child);
+    }
+
+    // Swap a button's Action for a timed one. setAction() re-reads the button's properties from the
+    // Action, so the ones set on the button itself (menu text, accelerator, check state...) are put back.
+    private void rebind(AbstractButton b) {
+        String text = b.getText(), tip = b.getToolTipText(), command = b.getActionCommand();
+        Icon icon = b.getIcon();
+        int mnemonic = b.getMnemonic();
+        boolean selected = b.isSelected();
+        KeyStroke key = b instanceof JMenuItem item ? item.getAccelerator() : null;
+        b.setAction(timed(text, b.getAction()));
+        b.setText(text); b.setToolTipText(tip); b.setActionCommand(command); b.setIcon(icon); b.setMnemonic(mnemonic); b.setSelected(selected);
+        if (b instanceof JMenuItem item) item.setAccelerator(key);
+    }
+
+    private interface Binder { void apply(ActionListener l); }
+
+    private void wrap(String name, ActionListener[] ls, Binder remove, Binder add) {
+        for (ActionListener l : ls) {
+            if (l instanceof Timed || l instanceof TimedAction) continue;
+            remove.apply(l);
+            add.apply(timed(name, l));
+        }
+    }
+
+    public ActionListener timed(String name, ActionListener l) {
+        String n = name(name, l);
+        return l instanceof Action a ? new TimedAction(n, a) : new Timed(n, l);
+    }
+
+    public Action timed(String name, Action a) { return a instanceof TimedAction ? a : new TimedAction(name(name, a), a); }
+
+    private static String name(String name, ActionListener l) {
+        if (l instanceof Action a && a.getValue(Action.NAME) instanceof String s && !s.isBlank()) return s;
+        return name == null || name.isBlank() ? l.getClass().getName() : name;
+    }
+
+    private void run(String name, ActionListener l, ActionEvent e) {
+        ActionTiming jfr = new ActionTiming();
+        jfr.begin();
+        long idle = idleNanos, start = System.nanoTime();
+        String outer = action;
+        action = name;
+        try {
+            l.actionPerformed(e);
+        } finally {
+            long busy = System.nanoTime() - start - (idleNanos - idle);
+            action = outer;
+            endedAction = name;
+            actions.computeIfAbsent(name, k -> new LatencyHistogram()).record(busy);
+            jfr.end();
+            if (jfr.shouldCommit()) { jfr.action = name; jfr.busy = busy; jfr.commit(); }
+        }
+    }
+
+    private final class Timed implements ActionListener {
+        private final String name;
+        private final ActionListener l;
+        Timed(String name, ActionListener l) { this.name = name; this.l = l; }
+        @Override public void actionPerformed(ActionEvent e) { run(name, l, e); }
+    }
+
+    // An Action that times its delegate and otherwise is it (properties, enabled state, listeners).
+    private final class TimedAction implements Action {
+        private final String name;
+        private final Action a;
+        TimedAction(String name, Action a) { this.name = name; this.a = a; }
+        @Override public void actionPerformed(ActionEvent e) { run(name, a, e); }
+        @Override public Object getValue(String key) { return a.getValue(key); }
+        @Override public void putValue(String key, Object value) { a.putValue(key, value); }
+        @Override public void setEnabled(boolean b) { a.setEnabled(b); }
+        @Override public boolean isEnabled() { return a.isEnabled(); }
+        @Override public boolean accept(Object sender) { return a.accept(sender); }
+        @Override public void addPropertyChangeListener(PropertyChangeListener l) { a.addPropertyChangeListener(l); }
+        @Override public void removePropertyChangeListener(PropertyChangeListener l) { a.removePropertyChangeListener(l); }
+    }
+
+    // ---- the queue and the watchdog ----
+
+    private final class TimingQueue extends EventQueue {
+        // Called by the EDT's pump (and by nested loops of modal dialogs) for each event: the time in
+        // here is idle, the time between two calls is one stretch of work.
+        @Override public AWTEvent getNextEvent() throws InterruptedException {
+            long now = System.nanoTime();
+            stretchEnded(now);
+            try {
+                return lastEvent = super.getNextEvent();
+            } finally {
+                long t = System.nanoTime();
+                idleNanos += t - now;
+                edt = Thread.currentThread();
+                endedAction = null;
+                segment++;
+                if (stallProbe.isEnabled()) { stallJfr = new StallEvent(); stallJfr.begin(); } else stallJfr = null;
+                busySince = t;
+            }
+        }
+    }
+
+    private void stretchEnded(long now) {
+        long since = busySince;
+        busySince = 0;
+        if (since == 0 || now - since < stallNanos) return;
+        List<StackTraceElement[]> taken;
+        String sampled;
+        synchronized (samples) {
+            taken = sampledSegment == segment ? new ArrayList<>(samples) : List.of();
+            sampled = sampledSegment == segment ? sampledAction : null;
+            samples.clear();
+            sampledSegment = -1;
+        }
+        String who = sampled != null ? sampled : endedAction != null ? endedAction : action;
+        Stall s = new Stall(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(now - since), now - since,
+                who, describe(lastEvent), hottest(taken), taken.size());
+        stalls.addFirst(s);
+        if (stalls.size() > KEEP_STALLS) stalls.removeLast();
+        stallCount++;
+        longestStall = Math.max(longestStall, s.nanos);
+        append(s.toString());
+        StallEvent jfr = stallJfr;
+        if (jfr != null) {
+            jfr.end();
+            if (jfr.shouldCommit()) { jfr.action = who; jfr.event = s.event; jfr.stack = s.stack; jfr.commit(); }
+        }
+    }
+
+    // Sample the EDT while the current stretch is over the threshold.
+    private void watch() {
+        long period = Math.max(5, TimeUnit.NANOSECONDS.toMillis(stallNanos) / 4);
+        while (running) {
+            try { Thread.sleep(period); } catch (InterruptedException e) { return; }
+            long since = busySince;
+            int seg = segment;
+            Thread t = edt;
+            if (since == 0 || t == null || System.nanoTime() - since < stallNanos) continue;
+            StackTraceElement[] stack = t.getStackTrace();
+            synchronized (samples) {
+                if (sampledSegment != seg) { samples.clear(); sampledSegment = seg; sampledAction = action; }
+                if (samples.size() < MAX_SAMPLES) samples.add(stack);
+            }
+        }
+    }
+
+    // The sample seen most often (by its top frames), printed.
+    private static String hottest(List<StackTraceElement[]> taken) {
+        if (taken.isEmpty()) return "";
+        Map<String, Integer> seen = new HashMap<>();
+        StackTraceElement[] best = null;
+        int bestCount = 0;
+        for (StackTraceElement[] st : taken) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < Math.min(12, st.length); i++) key.append(st[i]).append('\n');
+            int n = seen.merge(key.toString(), 1, Integer::sum);
+            if (n > bestCount) { bestCount = n; best = st; }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(STACK_DEPTH, best.length); i++) sb.append("\tat ").append(best[i]).append('\n');
+        if (best.length > STACK_DEPTH) sb.append("\t... ").append(best.length - STACK_DEPTH).append(" more\n");
+        return sb.toString();
+    }
+
+    private static String describe(AWTEvent e) {
+        if (e == null) return "";
+        Object src = e.getSource();
+        String what = src instanceof AbstractButton b && b.getText() != null ? " \"" + b.getText() + "\"" : "";
+        return e.getClass().getSimpleName() + " " + e.paramString().split(",", 2)[0] + " on " + src.getClass().getSimpleName() + what;
+    }
+
+    // ---- results ----
+
+    // A stretch of EDT work over the threshold.
+    public static final class Stall {
+        public final long atMillis, nanos;
+        public final String action, event, stack;
+        public final int samples;
+
+        Stall(long atMillis, long nanos, String action, String event, String stack, int samples) {
+            this.atMillis = atMillis; this.nanos = nanos; this.action = action; this.event = event; this.stack = stack; this.samples = samples;
+        }
+
+        public long millis() { return TimeUnit.NANOSECONDS.toMillis(nanos); }
+
+        @Override public String toString() {
+            return Instant.ofEpochMilli(atMillis) + " EDT stall " + millis() + " ms" + (action == null ? "" : " in \"" + action + "\"")
+                    + (event.isEmpty() ? "" : " (" + event + ")") + ", " + samples + " stack sample(s)\n" + stack;
+        }
+    }
+
+    // Snapshot of the per-action histograms, by name (EDT).
+    public Map<String, LatencyHistogram> actions() {
+        Map<String, LatencyHistogram> out = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        actions.forEach((k, v) -> out.put(k, v.copy()));
+        return out;
+    }
+
+    // Recent stalls, newest first (EDT).
+    public List<Stall> stalls() { return new ArrayList<>(stalls); }
+
+    public void reset() {
+        actions.values().forEach(LatencyHistogram::clear);
+        stalls.clear();
+        stallCount = longestStall = 0;
+    }
+
+    // Write the action histograms to the log and stop (call on exit).
+    public void close() {
+        running = false;
+        StringBuilder sb = new StringBuilder(Instant.now() + " session summary: " + this + '\n');
+        actions().forEach((name, h) -> sb.append('\t').append(name).append(": ").append(h).append('\n'));
+        append(sb.toString());
+        io.shutdown();
+        try { io.awaitTermination(5, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    private void append(String text) {
+        io.execute(() -> {
+            try {
+                Files.writeString(log, text.endsWith("\n") ? text : text + '\n', StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                System.err.println("Failed to write diagnostics log: " + ex.getMessage());
+            }
+        });
+    }
+
+    // Keep one previous log next to the current one.
+    private void rollLog() {
+        try {
+            if (Files.exists(log) && Files.size(log) > LOG_ROLL_BYTES)
+                Files.move(log, log.resolveSibling(log.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ignored) {}
+    }
+
+    @Override public String toString() {
+        return stallNanos <= 0 ? "EDT monitor off" : "EDT stalls over " + stallMillis() + " ms: " + stallCount
+                + (stallCount == 0 ? "" : " (longest " + TimeUnit.NANOSECONDS.toMillis(longestStall) + " ms)");
+    }
+
+    // ---- JFR ----
+
+    @Name("todo.EdtStall") @Label("EDT Stall") @Category("To-Do")
+    @Description("The event dispatch thread was busy past the stall threshold without taking another event")
+    static final class StallEvent extends Event {
+        @Label("Action") String action;
+        @Label("Event") String event;
+        @Label("Stack") String stack;
+    }
+
+    @Name("todo.UiAction") @Label("UI Action") @Category("To-Do")
+    @Description("A timed action or listener; the duration includes any modal dialog it opened, busy does not")
+    static final class ActionTiming extends Event {
+        @Label("Action") String action;
+        @Label("Busy") @Timespan(Timespan.NANOSECONDS) long busy;
+    }
+}
@@ -0,0 +1,63 @@
+package todo.diag;
+
+import java.util.Arrays;
+
+// Latencies in log-linear microsecond buckets: four buckets per power of two (under 4 µs, one per
+// microsecond), so a percentile is read off to within a quarter of its magnitude from a fixed array,
+// whatever the number of samples. Count, total and max are exact. Not thread-safe: EdtMonitor only
+// touches it on the EDT.
+public final class LatencyHistogram {
+    private static final int BUCKETS = 4 * 40;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count, totalNanos, maxNanos;
+
+    void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts[bucket(micros)]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    public long count() { return count; }
+    public double meanMillis() { return count == 0 ? 0 : totalNanos / 1e6 / count; }
+    public double maxMillis() { return maxNanos / 1e6; }
+
+    // Upper bound of the bucket holding the q-quantile (0 < q <= 1), capped at the max seen.
+    public double percentileMillis(double q) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(q * count), seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) return Math.min(upperMicros(b) / 1e3, maxMillis());
+        }
+        return maxMillis();
+    }
+
+    LatencyHistogram copy() {
+        LatencyHistogram h = new LatencyHistogram();
+        System.arraycopy(counts, 0, h.counts, 0, BUCKETS);
+        h.count = count; h.totalNanos = totalNanos; h.maxNanos = maxNanos;
+        return h;
+    }
+
+    void clear() { Arrays.fill(counts, 0); count = totalNanos = maxNanos = 0; }
+
+    private static int bucket(long micros) {
+        if (micros < 4) return (int) micros;
+        int e = 63 - Long.numberOfLeadingZeros(micros); // >= 2
+        return Math.min(BUCKETS - 1, 4 * (e - 1) + (int) (micros >>> (e - 2) & 3));
+    }
+
+    private static long upperMicros(int b) {
+        if (b < 4) return b + 1;
+        int e = b / 4 + 1;
+        return (long) (4 + b % 4 + 1) << (e - 2);
+    }
+
+    @Override public String toString() {
+        return String.format("n=%d mean %.1f ms, p50 %.1f, p95 %.1f, p99 %.1f, max %.1f ms",
+                count, meanMillis(), percentileMillis(0.5), percentileMillis(0.95), percentileMillis(0.99), maxMillis());
+    }
+}
@@ -16,7 +16,8 @@ public final class Exporter {
             if (t.dueAtMillis != null) sb.append(" (due: ").append(todo.util.DateUtil.formatDue(t.dueAtMillis)).append(")");
             if (!t.tags.isEmpty()) { sb.append(" "); for (String tag: t.tags) sb.append('#').append(tag).append(' '); }
             sb.append('\n');
-            if (t.note != null && !t.note.isBlank()) sb.append("  \n  ").append(t.note.replace("\n","\n  ")).append('\n');
+            String note = t.note();
+            if (note != null && !note.isBlank()) sb.append("  \n  ").append(note.replace("\n","\n  ")).append('\n');
         }
         return sb.toString();
     }
@@ -0,0 +1,6 @@
+package todo.model;
+
+// Where a note that is kept out of line lives (see Task.note()); reads may hit the disk.
+public interface NoteSource {
+    String read(long offset, int length);
+}
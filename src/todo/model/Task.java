@@ -4,14 +4,30 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Task {
+    private static final AtomicLong ID_SEQ = new AtomicLong();
+
+    // Stable identity, persisted in every storage format. Fresh tasks take the next sequence value;
+    // loaders overwrite it with the stored id and call reserveId so new ids never collide.
+    public long id = ID_SEQ.incrementAndGet();
     public String title;
     public boolean completed;
     public Priority priority = Priority.NORMAL;
     public Long dueAtMillis; // nullable (start-of-day millis)
     public long createdAtMillis = System.currentTimeMillis();
-    public String note; // long description
+    // Edit count, bumped by TaskListModel.set (not persisted): lets view caches such as the row heights
+    // tell an edited task from an unchanged one.
+    public int version;
+    // Position in the manual order (the "Manual" sort): a sparse sort key, so a task can be moved by
+    // re-ranking just that task (see TaskListModel.move). 0 = not placed yet; the list assigns one.
+    public long rank;
+    // Long description: either the text itself, or a NoteRef into a notes blob that is read (through
+    // the storage's note cache) only when note() is called. Storage swaps long inline notes for refs
+    // on its writer thread, so the field is volatile and swapped with compare-and-set.
+    private volatile Object note;
 
     // New: tags and subtasks for richer organization
     public final Set<String> tags = new HashSet<>();
@@ -25,6 +41,23 @@ public class Task {
         this.completed = completed;
     }
 
+    private static final AtomicReferenceFieldUpdater<Task, Object> NOTE =
+            AtomicReferenceFieldUpdater.newUpdater(Task.class, Object.class, "note");
+
+    public static long newId() { return ID_SEQ.incrementAndGet(); }
+    public static void reserveId(long id) { ID_SEQ.accumulateAndGet(id, Math::max); }
+
+    // Note API
+    public String note() { Object n = note; return n instanceof NoteRef r ? r.load() : (String) n; }
+    public void setNote(String note) { this.note = note; }
+    // Cheap check that never loads an out-of-line note (stored notes are never blank).
+    public boolean hasNote() { Object n = note; return n instanceof NoteRef r ? r.length > 0 : n != null && !((String) n).isBlank(); }
+    // Current note representation (a String, a NoteRef or null), for storage code.
+    public Object noteHandle() { return note; }
+    public void setNoteRef(NoteRef ref) { this.note = ref; }
+    // Swap the note for a ref unless it was edited since expected was read.
+    public boolean replaceNote(Object expected, NoteRef ref) { return NOTE.compareAndSet(this, expected, ref); }
+
     // Subtasks API
     public void addSubtask(String title) {
         if (title == null) return;
@@ -49,6 +82,17 @@ public class Task {
 
     @Override public String toString() { return (completed ? "[x] " : "[ ] ") + title; }
 
+    // Location of an out-of-line note: length bytes of UTF-8 at offset in source.
+    public static final class NoteRef {
+        public final NoteSource source;
+        public final long offset;
+        public final int length;
+        public NoteRef(NoteSource source, long offset, int length) { this.source = source; this.offset = offset; this.length = length; }
+        public String load() { return source.read(offset, length); }
+        @Override public boolean equals(Object o) { return o instanceof NoteRef r && r.source == source && r.offset == offset && r.length == length; }
+        @Override public int hashCode() { return Long.hashCode(offset) * 31 + System.identityHashCode(source); }
+    }
+
     // Subtask model
     public static class Subtask {
         public String title;
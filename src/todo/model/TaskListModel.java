@@ -0,0 +1,258 @@
+package todo.model;
+
+import javax.swing.*;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The task list model: a DefaultListModel that also keeps an id -> position index, so finding a
+// task's row is O(1) instead of a scan. Positions after an insert/remove in the middle go stale;
+// they are only refreshed (from the lowest changed row) when a lookup actually hits a stale entry,
+// so a burst of removals costs one re-index, not one per removal. Every lookup is verified against
+// the row it points at, so a stale entry can never return a wrong position.
+// Manual order is kept as ranks with gaps between them: new tasks go RANK_GAP past the highest rank,
+// and move() gives the moved tasks ranks between their new neighbours, re-spacing the whole list only
+// when a gap is used up.
+// Bulk edits go through batch(): changes are collected, applied in one pass on commit() and announced
+// with a single BatchEvent, so listeners (the view, the journal, the status) react once, not per row.
+public class TaskListModel extends DefaultListModel<Task> {
+    private final Map<Long, Integer> positions = new HashMap<>();
+    private int dirtyFrom = Integer.MAX_VALUE; // entries at or after this row may be stale
+    private boolean muted; // commit() in progress: the per-operation events are replaced by one BatchEvent
+    public static final long RANK_GAP = 1L << 32;
+    private long maxRank;
+
+    // O(1) position of the given task (by identity), or -1 if it is not in the list.
+    public int indexOf(Task t) {
+        if (t == null) return -1;
+        int p = probe(t);
+        if (p < 0 && dirtyFrom < size()) { reindex(); p = probe(t); }
+        return p;
+    }
+
+    public int indexOfId(long id) {
+        Task t = findById(id);
+        return t == null ? -1 : indexOf(t);
+    }
+
+    public Task findById(long id) {
+        Integer p = positions.get(id);
+        if (p == null) return null;
+        if (p >= dirtyFrom || p >= size() || get(p).id != id) { reindex(); p = positions.get(id); }
+        return p != null && p < size() && get(p).id == id ? get(p) : null;
+    }
+
+    @Override public int indexOf(Object elem) { return elem instanceof Task t ? indexOf(t) : -1; }
+    @Override public boolean contains(Object elem) { return indexOf(elem) >= 0; }
+
+    // Remove all given tasks with one removeRange per contiguous run of rows (highest first).
+    public int removeAll(Collection<Task> tasks) {
+        int[] rows = new int[tasks.size()];
+        int n = 0;
+        for (Task t : tasks) { int p = indexOf(t); if (p >= 0) rows[n++] = p; }
+        Arrays.sort(rows, 0, n);
+        for (int end = n - 1; end >= 0; ) {
+            int start = end;
+            while (start > 0 && rows[start - 1] == rows[start] - 1) start--;
+            removeRange(rows[start], rows[end]);
+            end = start - 1;
+        }
+        return n;
+    }
+
+    public Batch batch() { return new Batch(); }
+
+    // For re-adding removed tasks (undo): each keeps its old rank, so it returns to its place in the
+    // manual order, unless another task in the list has taken that rank since (a drop into the gap, or
+    // a rebalance). Those ranks are reset so the task goes last instead of tying with the other one.
+    public void releaseTakenRanks(Collection<Task> tasks) {
+        Map<Long, Task> byRank = new HashMap<>();
+        for (Task t : tasks) if (t.rank > 0 && indexOf(t) < 0) byRank.put(t.rank, t);
+        if (byRank.isEmpty()) return;
+        for (int i = 0; i < size(); i++) { Task t = byRank.get(get(i).rank); if (t != null) t.rank = 0; }
+    }
+
+    // Move tasks (in the given order) between after and before in the manual order (null = the start or
+    // the end) as one batch that changes only the moved tasks, unless the gap between the neighbours is
+    // too small, in which case every task is re-ranked first (same batch).
+    public void move(List<Task> tasks, Task after, Task before) {
+        if (tasks.isEmpty()) return;
+        Batch b = batch();
+        if (!place(tasks, after, before, b)) { rebalance(b); if (!place(tasks, after, before, b)) place(tasks, null, null, b); }
+        b.commit();
+    }
+
+    private boolean place(List<Task> tasks, Task after, Task before, Batch b) {
+        long lo = after == null ? 0 : after.rank;
+        long hi = before == null ? Math.max(lo, after == null ? maxRank : 0) + (tasks.size() + 1L) * RANK_GAP : before.rank;
+        long step = (hi - lo) / (tasks.size() + 1);
+        if (step < 1 || hi < 0 || hi > Long.MAX_VALUE / 2) return false;
+        long r = lo;
+        for (Task t : tasks) { t.rank = r += step; b.changed(t); }
+        maxRank = Math.max(maxRank, r);
+        return true;
+    }
+
+    // Re-space all ranks RANK_GAP apart, keeping the current manual order.
+    private void rebalance(Batch b) {
+        Task[] order = new Task[size()];
+        copyInto(order);
+        Arrays.sort(order, (x, y) -> Long.compare(x.rank, y.rank)); // stable: ties keep list order
+        long r = 0;
+        for (Task t : order) { t.rank = r += RANK_GAP; b.changed(t); }
+        maxRank = r;
+    }
+
+    // Edits collected for one commit. Field edits are made on the tasks directly and reported with
+    // changed(); additions are appended at the end of the list; a task both removed and changed is removed.
+    // Tasks are kept in plain lists and resolved to rows on commit, where repeats fall out.
+    public final class Batch {
+        private final List<Task> removed = new ArrayList<>(), changed = new ArrayList<>(), added = new ArrayList<>();
+        private boolean committed;
+
+        private Batch() {}
+
+        public Batch changed(Task t) { changed.add(t); return this; }
+        public Batch add(Task t) { added.add(t); return this; }
+        public Batch addAll(Collection<Task> tasks) { added.addAll(tasks); return this; }
+        public Batch remove(Task t) { removed.add(t); return this; }
+        public Batch removeAll(Collection<Task> tasks) { removed.addAll(tasks); return this; }
+        public boolean isEmpty() { return removed.isEmpty() && changed.isEmpty() && added.isEmpty(); }
+
+        // Apply everything and fire one BatchEvent (nothing if the batch is empty).
+        public void commit() {
+            if (committed) throw new IllegalStateException("batch already committed");
+            committed = true;
+            int[] gone = rows(removed), edited = rows(changed);
+            int m = 0;
+            for (int p : edited) { // edits to removed rows are dropped; the rest move down past the removed rows
+                int k = Arrays.binarySearch(gone, p);
+                if (k < 0) { get(p).version++; edited[m++] = p + k + 1; }
+            }
+            edited = Arrays.copyOf(edited, m);
+            int addedFrom;
+            muted = true;
+            try {
+                if (gone.length > 0) {
+                    List<Task> keep = new ArrayList<>(size() - gone.length);
+                    for (int i = 0, k = 0; i < size(); i++) { if (k < gone.length && gone[k] == i) k++; else keep.add(get(i)); }
+                    clear();
+                    TaskListModel.this.addAll(keep);
+                }
+                addedFrom = size();
+                TaskListModel.this.addAll(added);
+            } finally {
+                muted = false;
+            }
+            if (gone.length == 0 && added.isEmpty() && m == 0) return;
+            BatchEvent e = new BatchEvent(TaskListModel.this, gone, addedFrom, size() - addedFrom, edited);
+            ListDataListener[] ls = getListDataListeners();
+            for (int i = ls.length - 1; i >= 0; i--) ls[i].contentsChanged(e);
+        }
+
+        // Current rows of the tasks still in the list, ascending and distinct.
+        private int[] rows(List<Task> tasks) {
+            int[] rows = new int[tasks.size()];
+            int n = 0;
+            for (Task t : tasks) { int p = indexOf(t); if (p >= 0) rows[n++] = p; }
+            Arrays.sort(rows, 0, n);
+            int d = 0;
+            for (int i = 0; i < n; i++) if (d == 0 || rows[i] != rows[d - 1]) rows[d++] = rows[i];
+            return Arrays.copyOf(rows, d);
+        }
+    }
+
+    // The one event of a committed batch. To listeners that do not know it, it is a contentsChanged over
+    // an unspecified range (anything may have changed, including the size); batch-aware listeners read
+    // what happened: old positions removed (ascending), then tasks appended at [addedFrom, addedFrom +
+    // addedCount), then the tasks edited in place (new positions, ascending).
+    public static final class BatchEvent extends ListDataEvent {
+        private final int[] removed, changed;
+        private final int addedFrom, addedCount;
+
+        BatchEvent(Object source, int[] removed, int addedFrom, int addedCount, int[] changed) {
+            super(source, CONTENTS_CHANGED, -1, -1);
+            this.removed = removed; this.addedFrom = addedFrom; this.addedCount = addedCount; this.changed = changed;
+        }
+
+        public int[] removed() { return removed; }
+        public int addedFrom() { return addedFrom; }
+        public int addedCount() { return addedCount; }
+        public int[] changed() { return changed; }
+        public int size() { return removed.length + addedCount + changed.length; }
+    }
+
+    @Override protected void fireContentsChanged(Object source, int index0, int index1) { if (!muted) super.fireContentsChanged(source, index0, index1); }
+    @Override protected void fireIntervalAdded(Object source, int index0, int index1) { if (!muted) super.fireIntervalAdded(source, index0, index1); }
+    @Override protected void fireIntervalRemoved(Object source, int index0, int index1) { if (!muted) super.fireIntervalRemoved(source, index0, index1); }
+
+    // ---- mutators: keep the index in step before DefaultListModel fires its event ----
+
+    @Override public void addElement(Task t) { track(t, size()); super.addElement(t); }
+    @Override public void add(int index, Task t) { track(t, index); shifted(index + 1); super.add(index, t); }
+    @Override public void insertElementAt(Task t, int index) { track(t, index); shifted(index + 1); super.insertElementAt(t, index); }
+
+    @Override public void addAll(Collection<? extends Task> c) { addAll(size(), c); }
+    @Override public void addAll(int index, Collection<? extends Task> c) {
+        if (c.isEmpty()) return;
+        int p = index;
+        for (Task t : c) track(t, p++);
+        shifted(p);
+        super.addAll(index, c);
+    }
+
+    @Override public Task set(int index, Task t) { replace(index, t); t.version++; return super.set(index, t); }
+    @Override public void setElementAt(Task t, int index) { replace(index, t); t.version++; super.setElementAt(t, index); }
+
+    @Override public Task remove(int index) { untrack(index); shifted(index); return super.remove(index); }
+    @Override public void removeElementAt(int index) { untrack(index); shifted(index); super.removeElementAt(index); }
+    @Override public boolean removeElement(Object obj) {
+        int i = indexOf(obj);
+        if (i < 0) return false;
+        removeElementAt(i);
+        return true;
+    }
+    @Override public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) throw new IllegalArgumentException("fromIndex must be <= toIndex");
+        for (int i = fromIndex; i <= toIndex; i++) untrack(i);
+        shifted(fromIndex);
+        super.removeRange(fromIndex, toIndex);
+    }
+    @Override public void removeAllElements() { positions.clear(); dirtyFrom = Integer.MAX_VALUE; super.removeAllElements(); }
+    @Override public void clear() { positions.clear(); dirtyFrom = Integer.MAX_VALUE; super.clear(); }
+
+    private int probe(Task t) {
+        Integer p = positions.get(t.id);
+        return p != null && p < size() && get(p) == t ? p : -1;
+    }
+
+    // Register a task about to land at row p. A task whose id is already taken by another row
+    // (e.g. importing an export of the same list) is given a fresh id; one without a rank goes last.
+    private void track(Task t, int p) {
+        if (positions.containsKey(t.id)) t.id = Task.newId(); else Task.reserveId(t.id);
+        positions.put(t.id, p);
+        if (t.rank <= 0) t.rank = maxRank += RANK_GAP; else if (t.rank > maxRank) maxRank = t.rank;
+    }
+
+    private void untrack(int index) { positions.remove(get(index).id); }
+
+    private void replace(int index, Task t) {
+        Task old = get(index);
+        if (old == t) return;
+        positions.remove(old.id);
+        if (t.rank <= 0) t.rank = old.rank; // a replacement keeps its row's place in the manual order
+        track(t, index);
+    }
+
+    private void shifted(int from) { if (from < dirtyFrom) dirtyFrom = from; }
+
+    private void reindex() {
+        for (int i = Math.min(dirtyFrom, size()); i < size(); i++) positions.put(get(i).id, i);
+        dirtyFrom = Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,159 @@
+package todo.storage;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Minimal single-pass pull tokenizer for JSON. Reads through its own char buffer, so a document of
+// any size is processed in bounded memory; string contents are unescaped into one reusable buffer
+// and only turned into a String when the caller asks for the value. Separators (':' and ',') are
+// skipped, and a string immediately followed by ':' is reported as a NAME.
+final class JsonReader {
+    enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END }
+
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos, limit;
+    private final StringBuilder text = new StringBuilder(64);
+    private long number;
+    private long offset; // chars consumed before buf[0], for error messages
+
+    JsonReader(Reader in) { this.in = in; }
+
+    Token next() throws IOException {
+        int c = skipSeparators();
+        switch (c) {
+            case -1: return Token.END;
+            case '{': pos++; return Token.BEGIN_OBJECT;
+            case '}': pos++; return Token.END_OBJECT;
+            case '[': pos++; return Token.BEGIN_ARRAY;
+            case ']': pos++; return Token.END_ARRAY;
+            case '"':
+                pos++;
+                readString();
+                if (skipWhitespace() == ':') { pos++; return Token.NAME; }
+                return Token.STRING;
+            case 't': literal("true"); return Token.TRUE;
+            case 'f': literal("false"); return Token.FALSE;
+            case 'n': literal("null"); return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) { readNumber(); return Token.NUMBER; }
+                throw error("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    // Name of the last NAME token, compared without allocating.
+    boolean nameIs(String name) { return name.contentEquals(text); }
+
+    String stringValue() { return text.toString(); }
+
+    long longValue() { return number; }
+
+    // Skip the value that follows a NAME (or the next value in an array), however deeply nested.
+    void skipValue() throws IOException { skip(next()); }
+
+    void skip(Token first) throws IOException {
+        int depth = 0;
+        Token t = first;
+        while (true) {
+            switch (t) {
+                case BEGIN_OBJECT, BEGIN_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> depth--;
+                case END -> throw error("unexpected end of input");
+                default -> {}
+            }
+            if (depth <= 0) return;
+            t = next();
+        }
+    }
+
+    IOException error(String msg) { return new IOException("Malformed JSON at offset " + (offset + pos) + ": " + msg); }
+
+    private int skipSeparators() throws IOException {
+        while (true) {
+            int c = skipWhitespace();
+            if (c != ',' && c != ':') return c;
+            pos++;
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) return -1;
+            char c = buf[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            pos++;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = Math.max(0, in.read(buf, 0, buf.length));
+        return limit > 0;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) throw error("unexpected end of input");
+        return buf[pos++];
+    }
+
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            // copy unescaped runs straight from the buffer
+            int start = pos;
+            while (pos < limit && buf[pos] != '"' && buf[pos] != '\\') pos++;
+            text.append(buf, start, pos - start);
+            if (pos == limit) { if (!fill()) throw error("unterminated string"); continue; }
+            char c = buf[pos++];
+            if (c == '"') return;
+            int esc = read();
+            switch (esc) {
+                case '"', '\\', '/' -> text.append((char) esc);
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' -> {
+                    int v = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int d = Character.digit(read(), 16);
+                        if (d < 0) throw error("bad \\u escape");
+                        v = (v << 4) | d;
+                    }
+                    text.append((char) v);
+                }
+                default -> throw error("bad escape '\\" + (char) esc + "'");
+            }
+        }
+    }
+
+    private void readNumber() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) break;
+            char c = buf[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') { text.append(c); pos++; }
+            else break;
+        }
+        boolean integral = true;
+        long v = 0;
+        boolean neg = text.charAt(0) == '-';
+        for (int i = neg ? 1 : 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') { integral = false; break; }
+            v = v * 10 + (c - '0');
+        }
+        if (!integral) {
+            try { v = (long) Double.parseDouble(text.toString()); } catch (NumberFormatException e) { throw error("bad number " + text); }
+        } else if (neg) {
+            v = -v;
+        }
+        number = v;
+    }
+
+    private void literal(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) if (read() != word.charAt(i)) throw error("expected " + word);
+    }
+}
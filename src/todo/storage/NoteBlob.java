@@ -0,0 +1,244 @@
+package todo.storage;
+
+import todo.model.NoteSource;
+import todo.model.Task;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Out-of-line note storage: notes longer than INLINE_MAX chars are appended as raw UTF-8 to a blob
+// file next to the snapshot (tasks.txt -> tasks.txt.notes.<generation>), and the snapshot and journal
+// only keep "generation:offset:length". The blob is append-only, so a reference stays valid for as
+// long as its generation file exists; edited notes leave dead bytes behind, which compact() drops by
+// copying the live notes into the next generation. Loaded notes go through one process-wide LRU
+// cache bounded by -Dtodo.notes.cacheChars (default 2M chars), so only notes that are actually
+// shown, edited or searched stay on the heap.
+final class NoteBlob implements NoteSource {
+    static final int INLINE_MAX = 256;
+    private static final long CACHE_CHARS = Long.getLong("todo.notes.cacheChars", 2L << 20);
+    private static final long COMPACT_SLACK = 1L << 20; // dead bytes tolerated before compacting
+    private static final Map<Path, NoteBlob> OPEN = new HashMap<>();
+    private static final Map<Path, Integer> CURRENT = new HashMap<>();
+
+    // Access-ordered LRU of decoded notes, weighed by length; guarded by itself.
+    private static final LinkedHashMap<Task.NoteRef, String> CACHE = new LinkedHashMap<>(256, 0.75f, true);
+    private static long cachedChars;
+
+    final Path file;
+    final int generation;
+    private FileChannel ch;
+    private long end;
+
+    private NoteBlob(Path file, int generation) { this.file = file; this.generation = generation; }
+
+    static Path file(Path snapshot, int generation) { return snapshot.resolveSibling(snapshot.getFileName() + ".notes." + generation); }
+
+    static synchronized NoteBlob open(Path snapshot, int generation) {
+        return OPEN.computeIfAbsent(file(snapshot, generation).toAbsolutePath(), f -> new NoteBlob(f, generation));
+    }
+
+    // The generation new notes are appended to: the highest one on disk (1 if there is none yet).
+    static synchronized NoteBlob current(Path snapshot) {
+        Path key = snapshot.toAbsolutePath();
+        Integer gen = CURRENT.get(key);
+        if (gen == null) {
+            gen = 1;
+            for (int g : generations(snapshot)) gen = Math.max(gen, g);
+            CURRENT.put(key, gen);
+        }
+        return open(snapshot, gen);
+    }
+
+    // Parse a "generation:offset:length" reference written by refString.
+    static Task.NoteRef parseRef(Path snapshot, String ref) {
+        int a = ref.indexOf(':'), b = ref.indexOf(':', a + 1);
+        return open(snapshot, Integer.parseInt(ref.substring(0, a)))
+                .ref(Long.parseLong(ref.substring(a + 1, b)), Integer.parseInt(ref.substring(b + 1)));
+    }
+
+    static String refString(Task.NoteRef r) { return ((NoteBlob) r.source).generation + ":" + r.offset + ':' + r.length; }
+
+    Task.NoteRef ref(long offset, int length) { return new Task.NoteRef(this, offset, length); }
+
+    boolean owns(Task.NoteRef r) { return r.source == this; }
+
+    // Reference to t's note in this blob if it should be stored out of line, appending the text when it
+    // is not here yet; null if the note stays inline. The task is switched to the ref unless it was edited
+    // meanwhile. A note in an older generation that can't be read keeps its ref (see kept). Called on the
+    // writer threads.
+    Task.NoteRef store(Task t) throws IOException {
+        Object h = t.noteHandle();
+        if (h instanceof Task.NoteRef r && owns(r)) return r;
+        Task.NoteRef old = kept(t);
+        if (old != null) return old;
+        String text = text(t);
+        if (text == null || text.length() <= INLINE_MAX) return null;
+        Task.NoteRef r = append(text);
+        t.replaceNote(h, r);
+        return r;
+    }
+
+    synchronized Task.NoteRef append(String text) throws IOException {
+        FileChannel c = channel();
+        ByteBuffer bb = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        long offset = end;
+        while (bb.hasRemaining()) end += c.write(bb, end);
+        Task.NoteRef r = ref(offset, bb.capacity());
+        cache(r, text);
+        return r;
+    }
+
+    // Make appended notes durable before a snapshot that references them is renamed into place.
+    synchronized void sync() throws IOException { if (ch != null) ch.force(false); }
+
+    // For display: a note that can't be read shows as null. Storage code goes through text/kept instead,
+    // so a missing or truncated blob is never written back as an empty note.
+    @Override public String read(long offset, int length) {
+        try {
+            return load(offset, length);
+        } catch (IOException ex) {
+            System.err.println("Failed to read note: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private String load(long offset, int length) throws IOException {
+        Task.NoteRef key = ref(offset, length);
+        synchronized (CACHE) {
+            String s = CACHE.get(key);
+            if (s != null) return s;
+        }
+        FileChannel c;
+        synchronized (this) { c = channel(); }
+        ByteBuffer bb = ByteBuffer.allocate(length);
+        while (bb.hasRemaining() && c.read(bb, offset + bb.position()) > 0) {}
+        if (bb.hasRemaining()) throw new IOException("note at " + offset + " runs past the end of " + file.getFileName());
+        String s = new String(bb.array(), StandardCharsets.UTF_8);
+        cache(key, s);
+        return s;
+    }
+
+    // t's note text for writing inline; throws rather than returning null when an out-of-line note can't
+    // be read, so the write is aborted instead of persisting the note as "".
+    static String text(Task t) throws IOException {
+        Object h = t.noteHandle();
+        if (!(h instanceof Task.NoteRef r)) return (String) h;
+        if (r.source instanceof NoteBlob b) return b.load(r.offset, r.length);
+        String s = r.load();
+        if (s == null) throw new IOException("note of \"" + t.title + "\" can't be read");
+        return s;
+    }
+
+    // t's ref if it must be written as it is because its text can't be read: it points into another
+    // generation of this blob's snapshot, which then stays referenced (dropUnreferenced keeps it) until
+    // the note is readable again or edited. Null if the note can be written normally.
+    Task.NoteRef kept(Task t) {
+        if (!(t.noteHandle() instanceof Task.NoteRef r) || !(r.source instanceof NoteBlob b) || !b.snapshot().equals(snapshot())) return null;
+        try { b.load(r.offset, r.length); return null; }
+        catch (IOException ex) {
+            System.err.println("Keeping unreadable note of \"" + t.title + "\": " + ex.getMessage());
+            return r;
+        }
+    }
+
+    private Path snapshot() {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.lastIndexOf(".notes.")));
+    }
+
+    private static void cache(Task.NoteRef key, String text) {
+        synchronized (CACHE) {
+            String old = CACHE.put(key, text);
+            cachedChars += text.length() - (old == null ? 0 : old.length());
+            for (Iterator<String> it = CACHE.values().iterator(); cachedChars > CACHE_CHARS && it.hasNext(); ) {
+                cachedChars -= it.next().length();
+                it.remove();
+            }
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (ch == null) {
+            ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            end = ch.size();
+        }
+        return ch;
+    }
+
+    private synchronized void close() {
+        if (ch == null) return;
+        try { ch.close(); } catch (IOException ignored) {}
+        ch = null;
+    }
+
+    // ---- housekeeping, run when the journal opens (after load and replay, before any new record) ----
+
+    // If the blob files hold much more than the live notes, copy the live notes into a new generation
+    // and point the tasks at it. Returns true if it did; the caller must then write a snapshot before
+    // calling dropUnreferenced, so the old generation is only deleted once nothing refers to it.
+    static boolean compact(Path snapshot, DefaultListModel<Task> model) {
+        long live = 0, total = 0;
+        for (int i = 0; i < model.size(); i++) if (model.get(i).noteHandle() instanceof Task.NoteRef r) live += r.length;
+        for (int g : generations(snapshot)) {
+            try { total += Files.size(file(snapshot, g)); } catch (IOException ignored) {}
+        }
+        if (total - live <= Math.max(COMPACT_SLACK, live)) return false;
+        NoteBlob next;
+        synchronized (NoteBlob.class) {
+            int gen = current(snapshot).generation + 1;
+            CURRENT.put(snapshot.toAbsolutePath(), gen);
+            next = open(snapshot, gen);
+        }
+        try {
+            for (int i = 0; i < model.size(); i++) if (model.get(i).noteHandle() instanceof Task.NoteRef) next.store(model.get(i));
+            next.sync();
+            return true;
+        } catch (IOException ex) {
+            System.err.println("Failed to compact notes: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    // Delete blob generations that no task refers to (other than the current one).
+    static void dropUnreferenced(Path snapshot, DefaultListModel<Task> model) {
+        Set<Integer> used = new HashSet<>();
+        used.add(current(snapshot).generation);
+        for (int i = 0; i < model.size(); i++) {
+            if (model.get(i).noteHandle() instanceof Task.NoteRef r && r.source instanceof NoteBlob b) used.add(b.generation);
+        }
+        for (int g : generations(snapshot)) {
+            if (used.contains(g)) continue;
+            NoteBlob b;
+            synchronized (NoteBlob.class) { b = OPEN.remove(file(snapshot, g).toAbsolutePath()); }
+            if (b != null) b.close();
+            try { Files.deleteIfExists(file(snapshot, g)); } catch (IOException ex) { System.err.println("Failed to delete old notes: " + ex.getMessage()); }
+        }
+    }
+
+    private static Set<Integer> generations(Path snapshot) {
+        Set<Integer> out = new HashSet<>();
+        Path dir = snapshot.toAbsolutePath().getParent();
+        String prefix = snapshot.getFileName() + ".notes.";
+        if (dir == null || !Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path p : ds) {
+                try { out.add(Integer.parseInt(p.getFileName().toString().substring(prefix.length()))); }
+                catch (NumberFormatException ignored) {}
+            }
+        } catch (IOException ignored) {}
+        return out;
+    }
+}
@@ -0,0 +1,155 @@
+package todo.storage;
+
+import todo.model.Task;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Append-only archive of completed tasks, kept in a directory (tasks.txt.archive by default).
+// Each archive run appends one segment: a GZIP member holding a JSON task array, written to the end
+// of the current archive-NNNN.gz file. Files roll over once they pass ROLL_BYTES. index.txt holds
+// one line per segment so a segment can be found and read without scanning the files:
+//   file|offset|length|count|minCreatedMillis|maxCreatedMillis|archivedAtMillis
+// The segment is fsynced before its index line is written; bytes without an index line (from a
+// crash in between) are simply never referenced.
+public final class TaskArchive {
+    public static final long ROLL_BYTES = 64L << 20;
+    private static final String INDEX = "index.txt";
+
+    public static final class Segment {
+        public final String file;
+        public final long offset, length;
+        public final int count;
+        public final long minCreatedMillis, maxCreatedMillis, archivedAtMillis;
+
+        Segment(String file, long offset, long length, int count, long minCreated, long maxCreated, long archivedAt) {
+            this.file = file; this.offset = offset; this.length = length; this.count = count;
+            this.minCreatedMillis = minCreated; this.maxCreatedMillis = maxCreated; this.archivedAtMillis = archivedAt;
+        }
+
+        String toLine() {
+            return file + '|' + offset + '|' + length + '|' + count + '|' + minCreatedMillis + '|' + maxCreatedMillis + '|' + archivedAtMillis;
+        }
+
+        static Segment parse(String line) {
+            String[] p = line.split("\\|");
+            if (p.length < 7) return null;
+            try {
+                return new Segment(p[0], Long.parseLong(p[1]), Long.parseLong(p[2]), Integer.parseInt(p[3]),
+                        Long.parseLong(p[4]), Long.parseLong(p[5]), Long.parseLong(p[6]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private final Path dir;
+
+    public TaskArchive(Path dir) { this.dir = dir; }
+
+    public static Path defaultDir(Path storage) { return storage.resolveSibling(storage.getFileName() + ".archive"); }
+
+    public synchronized List<Segment> segments() throws IOException {
+        List<Segment> out = new ArrayList<>();
+        Path index = dir.resolve(INDEX);
+        if (!Files.exists(index)) return out;
+        try (BufferedReader r = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                Segment s = line.isBlank() ? null : Segment.parse(line);
+                if (s != null) out.add(s);
+            }
+        }
+        return out;
+    }
+
+    public int totalCount() throws IOException {
+        int n = 0;
+        for (Segment s : segments()) n += s.count;
+        return n;
+    }
+
+    // Append tasks as one new segment; earlier segments are never rewritten.
+    public synchronized Segment append(List<Task> tasks) throws IOException {
+        Files.createDirectories(dir);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(64 + tasks.size() * 128);
+        try (GZIPOutputStream gz = new GZIPOutputStream(buf, 1 << 16)) {
+            TaskStorage.writeJsonTo(gz, tasks.toArray(), null);
+        }
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (Task t : tasks) { min = Math.min(min, t.createdAtMillis); max = Math.max(max, t.createdAtMillis); }
+
+        String file = currentFile(buf.size());
+        Path path = dir.resolve(file);
+        long offset;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            offset = ch.size();
+            ByteBuffer bb = ByteBuffer.wrap(buf.toByteArray());
+            long pos = offset;
+            while (bb.hasRemaining()) pos += ch.write(bb, pos);
+            ch.force(true);
+        }
+        Segment seg = new Segment(file, offset, buf.size(), tasks.size(), min, max, System.currentTimeMillis());
+        try (FileChannel ch = FileChannel.open(dir.resolve(INDEX), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ch.write(ByteBuffer.wrap((seg.toLine() + '\n').getBytes(StandardCharsets.UTF_8)));
+            ch.force(true);
+        }
+        return seg;
+    }
+
+    // Read back the tasks of one segment by seeking straight to its byte range.
+    public List<Task> read(Segment s) throws IOException {
+        List<Task> out = new ArrayList<>(s.count);
+        try (FileChannel ch = FileChannel.open(dir.resolve(s.file), StandardOpenOption.READ)) {
+            ch.position(s.offset);
+            InputStream in = new BoundedStream(Channels.newInputStream(ch), s.length);
+            TaskStorage.readJson(new GZIPInputStream(in, 1 << 16), out);
+        }
+        return out;
+    }
+
+    // File the next segment goes into: the newest one, unless it would grow past ROLL_BYTES.
+    private String currentFile(long incoming) throws IOException {
+        List<Segment> segs = segments();
+        int n = 1;
+        if (!segs.isEmpty()) {
+            String last = segs.get(segs.size() - 1).file;
+            n = Integer.parseInt(last.substring(8, last.length() - 3));
+            Path p = dir.resolve(last);
+            if (Files.exists(p) && Files.size(p) + incoming > ROLL_BYTES) n++;
+        }
+        return String.format("archive-%04d.gz", n);
+    }
+
+    // Limits reads to one segment so GZIPInputStream does not run into the next member.
+    private static final class BoundedStream extends InputStream {
+        private final InputStream in;
+        private long left;
+        BoundedStream(InputStream in, long length) { this.in = in; this.left = length; }
+        @Override public int read() throws IOException {
+            if (left <= 0) return -1;
+            int b = in.read();
+            if (b >= 0) left--;
+            return b;
+        }
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (left <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, left));
+            if (n > 0) left -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package todo.storage;
+
+import todo.model.Task;
+import todo.model.TaskListModel;
+
+import javax.swing.*;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Append-only write-ahead journal next to the v2 snapshot (tasks.txt -> tasks.txt.journal).
+// Every model change is appended as one delta record; once enough records pile up the journal
+// is compacted into the snapshot on a background thread. Record format:
+//   <seq>|A|<pos>|<v2 line>    add at position
+//   <seq>|U|<pos>|<v2 line>    replace at position
+//   <seq>|R|<pos>|<count>      remove count tasks starting at position
+// The snapshot records the last journal record it contains (a "v2|journal|<seq>" header line, or the
+// v3 header field), so a crash between writing the snapshot and truncating the journal never replays
+// a record twice. (Older v2 readers skip the header line because it has fewer than 7 fields.)
+// Long notes live in the snapshot's notes blob (see NoteBlob); records carry refs to notes that are
+// already there and inline text for new ones, which the next checkpoint moves out of line.
+public final class TaskJournal implements ListDataListener {
+    private static final int CHECKPOINT_EVERY = 1000; // records between background compactions
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final DefaultListModel<Task> model;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "task-journal"); t.setDaemon(true); return t;
+    });
+    private Writer out; // only touched on the io thread
+    private long seq;
+    private int pending; // records since the last checkpoint
+
+    private TaskJournal(Path snapshotPath, DefaultListModel<Task> model) {
+        this.snapshotPath = snapshotPath;
+        this.journalPath = journalPath(snapshotPath);
+        this.model = model;
+    }
+
+    public static Path journalPath(Path snapshot) { return snapshot.resolveSibling(snapshot.getFileName() + ".journal"); }
+
+    // Load the last snapshot, replay the journal tail into the model and start recording changes.
+    public static TaskJournal open(Path snapshot, DefaultListModel<Task> model) {
+        TaskJournal j = new TaskJournal(snapshot, model);
+        TaskStorage.load(snapshot, model);
+        j.seq = TaskStorage.journalSeq(snapshot);
+        boolean dirty = j.replay();
+        boolean compacted = NoteBlob.compact(snapshot, model);
+        // Fold any replayed tail (or a torn last record) into a fresh snapshot before appending again.
+        boolean saved = (dirty || compacted) && j.writeCheckpoint(model.toArray(), j.seq);
+        if (saved || !compacted) NoteBlob.dropUnreferenced(snapshot, model);
+        model.addListDataListener(j);
+        return j;
+    }
+
+    // Compact the journal into the snapshot in the background.
+    public void checkpoint() {
+        Object[] snapshot = model.toArray();
+        long upTo = seq;
+        pending = 0;
+        io.execute(() -> writeCheckpoint(snapshot, upTo));
+    }
+
+    // Flush everything into the snapshot and stop the writer thread (call on exit).
+    public void close() {
+        model.removeListDataListener(this);
+        if (pending > 0) checkpoint();
+        io.shutdown();
+        try { io.awaitTermination(10, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        closeWriter();
+    }
+
+    @Override public void intervalAdded(ListDataEvent e) {
+        // Bulk inserts (imports, archive compaction) are cheaper as one snapshot than as per-task records.
+        if (e.getIndex1() - e.getIndex0() + 1 >= CHECKPOINT_EVERY) { seq++; checkpoint(); return; }
+        for (int i = e.getIndex0(); i <= e.getIndex1(); i++) append('A', i, model.get(i));
+    }
+
+    @Override public void intervalRemoved(ListDataEvent e) {
+        int from = e.getIndex0(), count = e.getIndex1() - e.getIndex0() + 1;
+        record(new StringBuilder().append(++seq).append("|R|").append(from).append('|').append(count));
+    }
+
+    @Override public void contentsChanged(ListDataEvent e) {
+        if (e instanceof TaskListModel.BatchEvent b) { batch(b); return; }
+        // An unspecified or very large range is folded into a full checkpoint.
+        if (e.getIndex0() < 0 || e.getIndex1() < 0 || e.getIndex1() - e.getIndex0() + 1 >= CHECKPOINT_EVERY) { seq++; checkpoint(); return; }
+        for (int i = e.getIndex0(); i <= e.getIndex1() && i < model.size(); i++) append('U', i, model.get(i));
+    }
+
+    // A committed batch is one write: its records (removals highest first, so the positions stay valid, then
+    // appends, then updates) go out together, or as one checkpoint when the batch is large.
+    private void batch(TaskListModel.BatchEvent b) {
+        if (b.size() >= CHECKPOINT_EVERY) { seq++; checkpoint(); return; }
+        StringBuilder sb = new StringBuilder();
+        int[] gone = b.removed();
+        for (int end = gone.length - 1; end >= 0; ) { // one R per contiguous run
+            int start = end;
+            while (start > 0 && gone[start - 1] == gone[start] - 1) start--;
+            sb.append(++seq).append("|R|").append(gone[start]).append('|').append(end - start + 1).append('\n');
+            end = start - 1;
+        }
+        try {
+            for (int pos = b.addedFrom(); pos < b.addedFrom() + b.addedCount(); pos++) line(sb, 'A', pos, model.get(pos)).append('\n');
+            for (int pos : b.changed()) line(sb, 'U', pos, model.get(pos)).append('\n');
+        } catch (IOException ex) { unrecorded(ex); return; }
+        write(sb.toString(), b.size());
+    }
+
+    private void append(char op, int pos, Task t) {
+        try { record(line(new StringBuilder(), op, pos, t)); }
+        catch (IOException ex) { unrecorded(ex); }
+    }
+
+    // Refs into the current blob (or unreadable ones kept by NoteBlob.kept) are written as refs, other
+    // notes inline; a note that can't be read at all fails the record.
+    private StringBuilder line(StringBuilder sb, char op, int pos, Task t) throws IOException {
+        sb.append(++seq).append('|').append(op).append('|').append(pos).append('|');
+        NoteBlob notes = NoteBlob.current(snapshotPath);
+        Task.NoteRef ref = t.noteHandle() instanceof Task.NoteRef r && notes.owns(r) ? r : notes.kept(t);
+        return TaskStorage.appendV2(sb, t, ref);
+    }
+
+    // A change that can't be encoded is not journaled; fall back to a checkpoint, which writes the whole
+    // model or fails loudly and leaves the last snapshot and journal alone.
+    private void unrecorded(IOException ex) {
+        System.err.println("Failed to journal change: " + ex.getMessage());
+        seq++;
+        checkpoint();
+    }
+
+    private void record(StringBuilder line) { write(line.append('\n').toString(), 1); }
+
+    private void write(String rec, int records) {
+        io.execute(() -> {
+            try {
+                if (out == null) out = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                out.write(rec); out.flush();
+            } catch (IOException ex) {
+                System.err.println("Failed to append journal: " + ex.getMessage());
+            }
+        });
+        if ((pending += records) >= CHECKPOINT_EVERY) checkpoint();
+    }
+
+    // Runs on the io thread (or on the caller during open). Tasks are encoded here, off the EDT;
+    // a field edited concurrently is harmless because that edit also produces a later record.
+    private boolean writeCheckpoint(Object[] tasks, long upTo) {
+        try {
+            TaskStorage.writeSnapshot(snapshotPath, tasks, upTo, NoteBlob.current(snapshotPath));
+            closeWriter();
+            Files.write(journalPath, new byte[0]);
+            return true;
+        } catch (Exception ex) {
+            System.err.println("Failed to checkpoint journal: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void closeWriter() {
+        if (out == null) return;
+        try { out.close(); } catch (IOException ignored) {}
+        out = null;
+    }
+
+    // Apply records newer than the snapshot. Returns true if the journal held anything.
+    private boolean replay() {
+        if (!Files.exists(journalPath)) return false;
+        boolean any = false;
+        try (BufferedReader r = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) continue;
+                any = true;
+                if (!apply(line)) break; // torn tail from a crash: stop at the first bad record
+            }
+        } catch (Exception ex) {
+            System.err.println("Failed to replay journal: " + ex.getMessage());
+        }
+        return any;
+    }
+
+    private boolean apply(String line) {
+        try {
+            int a = line.indexOf('|'), b = line.indexOf('|', a + 1), c = line.indexOf('|', b + 1);
+            if (a <= 0 || b != a + 2 || c < 0) return false;
+            long recSeq = Long.parseLong(line.substring(0, a));
+            int pos = Integer.parseInt(line.substring(b + 1, c));
+            if (recSeq <= seq) return true; // already folded into the snapshot
+            switch (line.charAt(a + 1)) {
+                case 'A' -> { Task t = TaskStorage.parseV2(line.substring(c + 1), snapshotPath); if (t == null) return false; model.add(pos, t); }
+                case 'U' -> { Task t = TaskStorage.parseV2(line.substring(c + 1), snapshotPath); if (t == null) return false; model.set(pos, t); }
+                case 'R' -> { int count = Integer.parseInt(line.substring(c + 1)); model.removeRange(pos, pos + count - 1); }
+                default -> { return false; }
+            }
+            seq = recSeq;
+            return true;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+}
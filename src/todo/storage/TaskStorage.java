@@ -2,17 +2,35 @@ package todo.storage;
 
 import todo.model.Priority;
 import todo.model.Task;
+import todo.model.TaskListModel;
 import todo.model.RecurrenceRule;
 
 import javax.swing.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public final class TaskStorage {
     private TaskStorage() {}
@@ -20,175 +38,387 @@ public final class TaskStorage {
     public static Path defaultPath() { return Paths.get("tasks.txt"); }
 
     // Save tasks to disk. v2 format:
-    // v2|completed(0/1)|priority|dueMillis|createdMillis|base64(title)|base64(note)
+    // v2|completed(0/1)|priority|dueMillis|createdMillis|base64(title)|base64(note)|id|noteRef|rank
+    // (the trailing fields are optional on read; older files get fresh ids and ranks in file order.
+    // noteRef is "generation:offset:length" into the notes blob, with an empty note field; see NoteBlob)
+    // A file that is already in the binary v3 format (see V3Format) stays v3. Files written
+    // through here keep every note inline, so they can be copied around on their own.
     public static void save(Path path, DefaultListModel<Task> model) {
         try {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < model.size(); i++) {
-                Task t = model.get(i);
-                String title64 = Base64.getEncoder().encodeToString(t.title.getBytes(StandardCharsets.UTF_8));
-                String note64 = Base64.getEncoder().encodeToString((t.note == null ? "" : t.note).getBytes(StandardCharsets.UTF_8));
-                sb.append("v2|")
-                  .append(t.completed ? '1' : '0').append('|')
-                  .append(t.priority.name()).append('|')
-                  .append(t.dueAtMillis == null ? "" : t.dueAtMillis).append('|')
-                  .append(t.createdAtMillis).append('|')
-                  .append(title64).append('|')
-                  .append(note64).append('\n');
-            }
-            Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+            writeSnapshot(path, model.toArray(), -1, null);
+        } catch (Exception ex) {
+            System.err.println("Failed to save tasks: " + ex.getMessage());
+        }
+    }
+
+    // Save tasks in the binary v3 format regardless of what the file currently holds.
+    public static void saveV3(Path path, DefaultListModel<Task> model) {
+        Object[] tasks = model.toArray();
+        try {
+            writeAtomically(path, ch -> V3Format.write(ch, tasks, 0, null));
         } catch (Exception ex) {
             System.err.println("Failed to save tasks: " + ex.getMessage());
         }
     }
 
-    // Load tasks from disk, supporting legacy v1 and new v2 formats.
+    // Write a snapshot in the file's current format (v2 unless it is already v3). journalSeq >= 0
+    // records the last journal record folded in (see TaskJournal). With a notes blob, long notes are
+    // written there and only referenced from the snapshot; null keeps every note inline.
+    static void writeSnapshot(Path path, Object[] tasks, long journalSeq, NoteBlob notes) throws IOException {
+        if (V3Format.isV3(path)) { writeAtomically(path, ch -> V3Format.write(ch, tasks, Math.max(0, journalSeq), notes)); return; }
+        writeAtomically(path, ch -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8), 1 << 16);
+            StringBuilder sb = new StringBuilder(256);
+            if (journalSeq >= 0) w.write("v2|journal|" + journalSeq + '\n');
+            for (Object o : tasks) {
+                sb.setLength(0);
+                Task t = (Task) o;
+                w.append(appendV2(sb, t, notes == null ? null : notes.store(t)).append('\n'));
+            }
+            w.flush();
+            if (notes != null) notes.sync();
+        });
+    }
+
+    // Last journal record contained in the snapshot (0 if it has no journal header).
+    static long journalSeq(Path path) {
+        try {
+            if (!Files.exists(path)) return 0;
+            if (V3Format.isV3(path)) return V3Format.readJournalSeq(path);
+            try (BufferedReader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String first = r.readLine();
+                if (first != null && first.startsWith("v2|journal|")) return Long.parseLong(first.substring(11).trim());
+            }
+        } catch (Exception ignored) {}
+        return 0;
+    }
+
+    private interface ChannelWriter { void write(FileChannel ch) throws IOException; }
+
+    // Write to a sibling temp file, fsync it and atomically rename it over path, so a crash
+    // mid-write never leaves a truncated tasks file.
+    private static void writeAtomically(Path path, ChannelWriter body) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            body.write(ch);
+            ch.force(true);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp); // an aborted write leaves path as it was
+            throw ex;
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Load tasks from disk: binary v3 (memory-mapped), or the legacy v1 / v2 line formats, which are
+    // streamed and decoded by V2Reader. Either way tasks reach the model in one bulk insert.
+    // Out-of-line notes are not read here, only referenced; they load when first shown.
     public static void load(Path path, DefaultListModel<Task> model) {
         try {
             if (!Files.exists(path)) return;
-            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
-                if (line.isBlank()) continue;
-                if (line.startsWith("v2|")) {
-                    String[] parts = line.split("\\|", -1);
-                    if (parts.length >= 7) {
-                        boolean completed = "1".equals(parts[1]);
-                        Priority pr;
-                        try { pr = Priority.valueOf(parts[2]); } catch (Exception e) { pr = Priority.NORMAL; }
-                        Long due = parts[3].isEmpty() ? null : Long.parseLong(parts[3]);
-                        long created = parts[4].isEmpty() ? System.currentTimeMillis() : Long.parseLong(parts[4]);
-                        String title = new String(Base64.getDecoder().decode(parts[5]), StandardCharsets.UTF_8);
-                        String note = new String(Base64.getDecoder().decode(parts[6]), StandardCharsets.UTF_8);
-                        Task t = new Task(oneLine(title), completed);
-                        t.priority = pr;
-                        t.dueAtMillis = due;
-                        t.createdAtMillis = created;
-                        t.note = note.isEmpty() ? null : note;
-                        model.addElement(t);
-                    }
-                } else {
-                    int sep = line.indexOf('|');
-                    if (sep <= 0 || sep >= line.length() - 1) continue;
-                    boolean completed = line.charAt(0) == '1';
-                    String encoded = line.substring(sep + 1);
-                    String title = new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8);
-                    model.addElement(new Task(oneLine(title), completed));
-                }
-            }
+            List<Task> tasks = V3Format.isV3(path) ? V3Format.read(path) : V2Reader.read(path);
+            if (!tasks.isEmpty()) model.addAll(tasks);
         } catch (Exception ex) {
             System.err.println("Failed to load tasks: " + ex.getMessage());
         }
     }
 
+    // Encode a single task as a v2 line (without the trailing newline); a non-null noteRef is written
+    // in place of the note text. Fails if the note is out of line and can't be read.
+    static StringBuilder appendV2(StringBuilder sb, Task t, Task.NoteRef noteRef) throws IOException {
+        String title64 = Base64.getEncoder().encodeToString(t.title.getBytes(StandardCharsets.UTF_8));
+        String note = noteRef != null ? null : NoteBlob.text(t);
+        String note64 = Base64.getEncoder().encodeToString((note == null ? "" : note).getBytes(StandardCharsets.UTF_8));
+        sb.append("v2|")
+          .append(t.completed ? '1' : '0').append('|')
+          .append(t.priority.name()).append('|')
+          .append(t.dueAtMillis == null ? "" : t.dueAtMillis).append('|')
+          .append(t.createdAtMillis).append('|')
+          .append(title64).append('|')
+          .append(note64).append('|')
+          .append(t.id).append('|');
+        if (noteRef != null) sb.append(NoteBlob.refString(noteRef));
+        return sb.append('|').append(t.rank);
+    }
+
+    // Decode a v2 line; returns null for short/foreign lines (e.g. the journal header). Note refs
+    // resolve against the blobs of snapshot.
+    static Task parseV2(String line, Path snapshot) {
+        String[] parts = line.split("\\|", -1);
+        if (parts.length < 7) return null;
+        boolean completed = "1".equals(parts[1]);
+        Priority pr;
+        try { pr = Priority.valueOf(parts[2]); } catch (Exception e) { pr = Priority.NORMAL; }
+        Long due = parts[3].isEmpty() ? null : Long.parseLong(parts[3]);
+        long created = parts[4].isEmpty() ? System.currentTimeMillis() : Long.parseLong(parts[4]);
+        String title = new String(Base64.getDecoder().decode(parts[5]), StandardCharsets.UTF_8);
+        String note = new String(Base64.getDecoder().decode(parts[6]), StandardCharsets.UTF_8);
+        Task t = new Task(oneLine(title), completed);
+        t.priority = pr;
+        t.dueAtMillis = due;
+        t.createdAtMillis = created;
+        t.setNote(note.isEmpty() ? null : note);
+        if (parts.length >= 8 && !parts[7].isEmpty()) { t.id = Long.parseLong(parts[7]); Task.reserveId(t.id); }
+        if (parts.length >= 9 && !parts[8].isEmpty()) t.setNoteRef(NoteBlob.parseRef(snapshot, parts[8]));
+        if (parts.length >= 10 && !parts[9].isEmpty()) t.rank = Long.parseLong(parts[9]);
+        return t;
+    }
+
     private static String oneLine(String s) {
         return s.replace('\n', ' ').replace('\r', ' ').trim();
     }
 
     // ---- JSON import/export (simple, self-contained) ----
+    // Export progress callback: called on the writing thread every PROGRESS_STEP tasks and at the end.
+    public interface Progress { void update(int done, int total); }
+    private static final int PROGRESS_STEP = 1000;
+
+    // Export to JSON; a path ending in ".gz" is written GZIP-compressed.
     public static void saveJson(Path path, DefaultListModel<Task> model) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("[\n");
-        for (int i = 0; i < model.size(); i++) {
-            Task t = model.get(i);
-            if (i > 0) sb.append(",\n");
-            sb.append("  {");
-            sb.append("\"title\":").append(quote(t.title)).append(",");
-            sb.append("\"completed\":").append(t.completed).append(",");
-            sb.append("\"priority\":").append(quote(t.priority.name())).append(",");
-            sb.append("\"dueAtMillis\":").append(t.dueAtMillis == null ? "null" : t.dueAtMillis).append(",");
-            sb.append("\"createdAtMillis\":").append(t.createdAtMillis).append(",");
-            sb.append("\"note\":").append(quoteOrNull(t.note)).append(",");
-            // tags
-            sb.append("\"tags\":[");
-            int c = 0; for (String tag : t.tags) { if (c++>0) sb.append(','); sb.append(quote(tag)); }
-            sb.append("],");
-            // subtasks
-            sb.append("\"subtasks\":[");
+        saveJson(path, model, path.toString().endsWith(".gz"), null);
+    }
+
+    // Stream tasks to JSON through a buffered writer, escaping as we go, so exporting never builds the
+    // whole document in memory. Reads the model, so call it on the EDT; to export off the EDT, take
+    // model.toArray() there and pass the snapshot to the overload below.
+    public static void saveJson(Path path, DefaultListModel<Task> model, boolean gzip, Progress progress) {
+        saveJson(path, model.toArray(), gzip, progress);
+    }
+
+    // Export a snapshot of tasks (from DefaultListModel#toArray); safe on any thread.
+    public static void saveJson(Path path, Object[] tasks, boolean gzip, Progress progress) {
+        try { writeJson(path, tasks, gzip, progress); }
+        catch (IOException e) { System.err.println("Failed to save JSON: "+e.getMessage()); }
+    }
+
+    private static void writeJson(Path path, Object[] tasks, boolean gzip, Progress progress) throws IOException {
+        writeAtomically(path, ch -> {
+            OutputStream os = Channels.newOutputStream(ch);
+            GZIPOutputStream gz = gzip ? new GZIPOutputStream(os, 1 << 16) : null;
+            writeJsonTo(gz != null ? gz : os, tasks, progress);
+            if (gz != null) gz.finish();
+        });
+    }
+
+    // Write the JSON array to out (flushed, not closed).
+    static void writeJsonTo(OutputStream out, Object[] tasks, Progress progress) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        w.write("[\n");
+        for (int i = 0; i < tasks.length; i++) {
+            Task t = (Task) tasks[i];
+            if (i > 0) w.write(",\n");
+            w.write("  {\"title\":"); writeJsonString(w, t.title);
+            w.write(",\"completed\":"); w.write(t.completed ? "true" : "false");
+            w.write(",\"priority\":"); writeJsonString(w, t.priority.name());
+            w.write(",\"dueAtMillis\":"); w.write(t.dueAtMillis == null ? "null" : Long.toString(t.dueAtMillis));
+            w.write(",\"createdAtMillis\":"); w.write(Long.toString(t.createdAtMillis));
+            w.write(",\"rank\":"); w.write(Long.toString(t.rank));
+            w.write(",\"note\":"); writeJsonString(w, NoteBlob.text(t));
+            w.write(",\"tags\":[");
+            int c = 0; for (String tag : t.tags) { if (c++ > 0) w.write(','); writeJsonString(w, tag); }
+            w.write("],\"subtasks\":[");
             for (int j = 0; j < t.subtasks.size(); j++) {
-                var s = t.subtasks.get(j);
-                if (j>0) sb.append(',');
-                sb.append('{').append("\"title\":").append(quote(s.title)).append(',').append("\"done\":").append(s.done).append('}');
+                Task.Subtask s = t.subtasks.get(j);
+                if (j > 0) w.write(',');
+                w.write("{\"title\":"); writeJsonString(w, s.title); w.write(",\"done\":"); w.write(s.done ? "true" : "false"); w.write('}');
             }
-            sb.append("],");
-            // recurrence
-            sb.append("\"recurrence\":").append(t.recurrence == null ? "null" : quote(t.recurrence.type.name()));
-            sb.append("}");
+            w.write("],\"recurrence\":"); writeJsonString(w, t.recurrence == null ? null : t.recurrence.type.name());
+            w.write('}');
+            if (progress != null && (i + 1) % PROGRESS_STEP == 0) progress.update(i + 1, tasks.length);
         }
-        sb.append("\n]\n");
-        try { Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8)); }
-        catch (IOException e) { System.err.println("Failed to save JSON: "+e.getMessage()); }
+        w.write("\n]\n");
+        w.flush();
+        if (progress != null) progress.update(tasks.length, tasks.length);
     }
 
-    public static void loadJson(Path path, DefaultListModel<Task> model) {
-        try {
-            if (!Files.exists(path)) return;
-            String json = Files.readString(path, StandardCharsets.UTF_8).trim();
-            if (!json.startsWith("[") || !json.endsWith("]")) return;
-            // very small, permissive parser for our own format
-            String body = json.substring(1, json.length()-1).trim();
-            if (body.isEmpty()) return;
-            // split top-level objects by '},' boundaries (assumes no nested objects beyond subtasks)
-            List<String> objs = new ArrayList<>();
-            int depth = 0, start = 0; for (int i=0;i<body.length();i++){ char ch=body.charAt(i); if(ch=='{'){ if(depth++==0) start=i;} else if(ch=='}'){ if(--depth==0){ objs.add(body.substring(start,i+1)); } } }
-            for (String obj : objs) {
-                String o = obj;
-                Task t = new Task(extractString(o, "title"), extractBoolean(o, "completed"));
-                String pr = extractString(o, "priority");
-                try { t.priority = Priority.valueOf(pr); } catch (Exception ignored) {}
-                Long due = extractLongOrNull(o, "dueAtMillis");
-                if (due != null) t.dueAtMillis = due;
-                Long created = extractLongOrNull(o, "createdAtMillis");
-                if (created != null) t.createdAtMillis = created;
-                t.note = extractStringOrNull(o, "note");
-                // tags
-                for (String tag : extractStringArray(o, "tags")) t.addTag(tag);
-                // subtasks
-                for (String sub : extractObjectArray(o, "subtasks")) {
-                    String st = extractString(sub, "title"); boolean done = extractBoolean(sub, "done");
-                    Task.Subtask s = new Task.Subtask(st); s.done = done; t.subtasks.add(s);
-                }
-                String rr = extractStringOrNull(o, "recurrence");
-                if (rr != null) t.recurrence = RecurrenceRule.parse(rr);
-                model.addElement(t);
+    // Write a JSON string literal (or null), escaping quotes, backslashes and control characters.
+    private static void writeJsonString(Writer w, String s) throws IOException {
+        if (s == null) { w.write("null"); return; }
+        w.write('"');
+        int run = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch != '"' && ch != '\\' && ch >= 0x20) continue;
+            w.write(s, run, i - run);
+            run = i + 1;
+            switch (ch) {
+                case '"' -> w.write("\\\"");
+                case '\\' -> w.write("\\\\");
+                case '\n' -> w.write("\\n");
+                case '\r' -> w.write("\\r");
+                case '\t' -> w.write("\\t");
+                default -> w.write(String.format("\\u%04x", (int) ch));
             }
+        }
+        w.write(s, run, s.length() - run);
+        w.write('"');
+    }
+
+    // Stream the JSON export through JsonReader, filling each Task as its fields arrive.
+    public static void loadJson(Path path, DefaultListModel<Task> model) {
+        if (!Files.exists(path)) return;
+        List<Task> out = new ArrayList<>();
+        try (InputStream in = openMaybeGzip(path)) {
+            readJson(in, out);
         } catch (Exception e) {
             System.err.println("Failed to load JSON: "+e.getMessage());
+        } finally {
+            if (!out.isEmpty()) model.addAll(out);
+        }
+    }
+
+    // Read a JSON task array from in, appending to out as tasks complete (so a failure keeps the prefix).
+    static void readJson(InputStream input, List<Task> out) throws IOException {
+        JsonReader in = new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (in.next() != JsonReader.Token.BEGIN_ARRAY) return;
+        JsonReader.Token tok;
+        while ((tok = in.next()) != JsonReader.Token.END_ARRAY) {
+            if (tok == JsonReader.Token.BEGIN_OBJECT) out.add(readJsonTask(in)); else in.skip(tok);
+        }
+    }
+
+    // Transparently decompress files that start with the GZIP magic bytes.
+    private static InputStream openMaybeGzip(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        in.mark(2);
+        int b0 = in.read(), b1 = in.read();
+        in.reset();
+        return b0 == 0x1f && b1 == 0x8b ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    private static Task readJsonTask(JsonReader in) throws IOException {
+        Task t = new Task("", false);
+        JsonReader.Token tok;
+        while ((tok = in.next()) == JsonReader.Token.NAME) {
+            if (in.nameIs("title")) t.title = jsonString(in, "");
+            else if (in.nameIs("completed")) t.completed = jsonBoolean(in, false);
+            else if (in.nameIs("priority")) { String pr = jsonString(in, null); try { t.priority = Priority.valueOf(pr); } catch (Exception ignored) {} }
+            else if (in.nameIs("dueAtMillis")) t.dueAtMillis = jsonLong(in, null);
+            else if (in.nameIs("id")) { Long id = jsonLong(in, null); if (id != null) { t.id = id; Task.reserveId(id); } }
+            else if (in.nameIs("createdAtMillis")) t.createdAtMillis = jsonLong(in, t.createdAtMillis);
+            else if (in.nameIs("rank")) t.rank = jsonLong(in, t.rank);
+            else if (in.nameIs("note")) t.setNote(jsonString(in, null));
+            else if (in.nameIs("recurrence")) { String rr = jsonString(in, null); if (rr != null) t.recurrence = RecurrenceRule.parse(rr); }
+            else if (in.nameIs("tags")) {
+                JsonReader.Token v = in.next();
+                if (v != JsonReader.Token.BEGIN_ARRAY) { in.skip(v); continue; }
+                while ((v = in.next()) != JsonReader.Token.END_ARRAY) { if (v == JsonReader.Token.STRING) t.addTag(in.stringValue()); else in.skip(v); }
+            } else if (in.nameIs("subtasks")) {
+                JsonReader.Token v = in.next();
+                if (v != JsonReader.Token.BEGIN_ARRAY) { in.skip(v); continue; }
+                while ((v = in.next()) != JsonReader.Token.END_ARRAY) { if (v == JsonReader.Token.BEGIN_OBJECT) t.subtasks.add(readJsonSubtask(in)); else in.skip(v); }
+            } else in.skipValue();
+        }
+        if (tok != JsonReader.Token.END_OBJECT) throw in.error("expected a field name");
+        return t;
+    }
+
+    private static Task.Subtask readJsonSubtask(JsonReader in) throws IOException {
+        Task.Subtask s = new Task.Subtask("");
+        JsonReader.Token tok;
+        while ((tok = in.next()) == JsonReader.Token.NAME) {
+            if (in.nameIs("title")) s.title = jsonString(in, "");
+            else if (in.nameIs("done")) s.done = jsonBoolean(in, false);
+            else in.skipValue();
         }
+        if (tok != JsonReader.Token.END_OBJECT) throw in.error("expected a field name");
+        return s;
+    }
+
+    // Read a string value (or null/anything else, which yields the fallback).
+    private static String jsonString(JsonReader in, String fallback) throws IOException {
+        JsonReader.Token v = in.next();
+        if (v == JsonReader.Token.STRING) return in.stringValue();
+        in.skip(v);
+        return fallback;
+    }
+
+    // Read a number value (anything else, however nested, is skipped and yields the fallback).
+    private static Long jsonLong(JsonReader in, Long fallback) throws IOException {
+        JsonReader.Token v = in.next();
+        if (v == JsonReader.Token.NUMBER) return in.longValue();
+        in.skip(v);
+        return fallback;
     }
 
-    // archive completed tasks to an external file and remove them from the model
-    public static void archiveCompleted(Path archivePath, DefaultListModel<Task> model) {
-        DefaultListModel<Task> completed = new DefaultListModel<>();
-        for (int i = 0; i < model.size(); i++) if (model.get(i).completed) completed.addElement(model.get(i));
+    // Read true/false (anything else is skipped and yields the fallback).
+    private static boolean jsonBoolean(JsonReader in, boolean fallback) throws IOException {
+        JsonReader.Token v = in.next();
+        if (v == JsonReader.Token.TRUE || v == JsonReader.Token.FALSE) return v == JsonReader.Token.TRUE;
+        in.skip(v);
+        return fallback;
+    }
+
+    // Archive completed tasks into the segmented store at archiveDir (see TaskArchive) and remove them
+    // from the model as one batch: listeners see only the removed rows, and the kept tasks are not
+    // re-added (or re-indexed).
+    public static void archiveCompleted(Path archiveDir, TaskListModel model) {
+        List<Task> completed = new ArrayList<>();
+        for (int i = 0; i < model.size(); i++) { Task t = model.get(i); if (t.completed) completed.add(t); }
         if (completed.isEmpty()) return;
-        saveJson(archivePath, completed);
-        for (int i = model.size()-1; i>=0; i--) if (model.get(i).completed) model.remove(i);
+        try { new TaskArchive(archiveDir).append(completed); }
+        catch (IOException e) { System.err.println("Failed to archive tasks: "+e.getMessage()); return; }
+        model.batch().removeAll(completed).commit();
+    }
+
+    // Saved searches (View menu) live next to the tasks in <tasks>.views, one
+    // base64(name)|base64(query) line each, in menu order.
+    public static Map<String, String> loadSavedSearches(Path tasksPath) {
+        Map<String, String> out = new LinkedHashMap<>();
+        Path file = tasksPath.resolveSibling(tasksPath.getFileName() + ".views");
+        try {
+            if (!Files.exists(file)) return out;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] p = line.split("\\|", -1);
+                if (p.length != 2) continue;
+                Base64.Decoder d = Base64.getDecoder();
+                out.put(new String(d.decode(p[0]), StandardCharsets.UTF_8), new String(d.decode(p[1]), StandardCharsets.UTF_8));
+            }
+        } catch (Exception ex) {
+            System.err.println("Failed to load saved searches: " + ex.getMessage());
+        }
+        return out;
     }
 
-    // migrate any supported format to our current v2 line format
+    public static void saveSavedSearches(Path tasksPath, Map<String, String> searches) {
+        StringBuilder sb = new StringBuilder();
+        Base64.Encoder e = Base64.getEncoder();
+        searches.forEach((name, query) -> sb.append(e.encodeToString(name.getBytes(StandardCharsets.UTF_8))).append('|')
+                .append(e.encodeToString(query.getBytes(StandardCharsets.UTF_8))).append('\n'));
+        try {
+            writeAtomically(tasksPath.resolveSibling(tasksPath.getFileName() + ".views"),
+                    ch -> ch.write(StandardCharsets.UTF_8.encode(sb.toString())));
+        } catch (IOException ex) {
+            System.err.println("Failed to save saved searches: " + ex.getMessage());
+        }
+    }
+
+    // migrate any supported format (v1/v2 lines, JSON or GZIP-compressed JSON, v3) to the binary v3
+    // format. The format is sniffed from the content, not the name; a source that yields no tasks
+    // although it is not empty is reported rather than migrated to an empty file.
     public static void migrate(Path src, Path dest) {
         DefaultListModel<Task> tmp = new DefaultListModel<>();
-        if (src.toString().endsWith(".json")) loadJson(src, tmp); else load(src, tmp);
-        save(dest, tmp);
-    }
-
-    // --- tiny JSON helpers ---
-    private static String quote(String s) { return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n","\\n") + '"'; }
-    private static String quoteOrNull(String s) { return s == null ? "null" : quote(s); }
-    private static String extractString(String obj, String key) { String v = extractStringOrNull(obj, key); return v==null?"":v; }
-    private static String extractStringOrNull(String obj, String key) {
-        int i = obj.indexOf('"'+key+'"'); if (i<0) return null; i=obj.indexOf(':',i); if(i<0) return null; i++;
-        while (i<obj.length() && Character.isWhitespace(obj.charAt(i))) i++;
-        if (obj.charAt(i)=='n') return null; // null
-        if (obj.charAt(i)!='"') return null; i++; StringBuilder sb=new StringBuilder();
-        while (i<obj.length()) { char ch=obj.charAt(i++); if(ch=='\\'){ if(i<obj.length()) { char esc=obj.charAt(i++); if(esc=='n') sb.append('\n'); else sb.append(esc);} } else if(ch=='"'){ break; } else sb.append(ch);} return sb.toString();
-    }
-    private static boolean extractBoolean(String obj, String key) { int i=obj.indexOf('"'+key+'"'); if(i<0) return false; i=obj.indexOf(':',i)+1; return obj.substring(i).trim().startsWith("true"); }
-    private static Long extractLongOrNull(String obj, String key) { int i=obj.indexOf('"'+key+'"'); if(i<0) return null; i=obj.indexOf(':',i)+1; String rem=obj.substring(i).trim(); if(rem.startsWith("null")) return null; int j=0; while(j<rem.length() && (Character.isDigit(rem.charAt(j)))) j++; try { return Long.parseLong(rem.substring(0,j)); } catch(Exception e){ return null; } }
-    private static List<String> extractStringArray(String obj, String key) {
-        List<String> out=new ArrayList<>(); int i=obj.indexOf('"'+key+'"'); if(i<0) return out; i=obj.indexOf('[',i); int j=obj.indexOf(']',i); if(i<0||j<0) return out; String arr=obj.substring(i+1,j); int p=0; while(p<arr.length()){ while(p<arr.length()&&Character.isWhitespace(arr.charAt(p)))p++; if(p>=arr.length())break; if(arr.charAt(p)=='"'){ int q=p+1; StringBuilder sb=new StringBuilder(); while(q<arr.length()){ char ch=arr.charAt(q++); if(ch=='\\'){ if(q<arr.length()){ char esc=arr.charAt(q++); if(esc=='n') sb.append('\n'); else sb.append(esc);} } else if(ch=='"'){ break; } else sb.append(ch);} out.add(sb.toString()); p=q; } else { break; } while(p<arr.length()&&arr.charAt(p)!=',')p++; if(p<arr.length()&&arr.charAt(p)==',')p++; }
-        return out;
+        if (isJson(src)) loadJson(src, tmp); else load(src, tmp);
+        try {
+            if (tmp.isEmpty() && Files.size(src) > 0) { System.err.println("Failed to migrate tasks: no tasks read from " + src); return; }
+        } catch (IOException ex) {
+            System.err.println("Failed to migrate tasks: " + ex.getMessage());
+            return;
+        }
+        saveV3(dest, tmp);
     }
-    private static List<String> extractObjectArray(String obj, String key) {
-        List<String> out=new ArrayList<>(); int i=obj.indexOf('"'+key+'"'); if(i<0) return out; i=obj.indexOf('[',i); int j=obj.indexOf(']',i); if(i<0||j<0) return out; String arr=obj.substring(i+1,j); int depth=0,start=0; for(int k=0;k<arr.length();k++){ char ch=arr.charAt(k); if(ch=='{'){ if(depth++==0) start=k; } else if(ch=='}'){ if(--depth==0) out.add(arr.substring(start,k+1)); }} return out;
+
+    // True if the file (after GZIP decompression, if compressed) starts with a JSON array.
+    private static boolean isJson(Path path) {
+        try (InputStream in = openMaybeGzip(path)) {
+            int c;
+            while ((c = in.read()) == ' ' || c == '\t' || c == '\r' || c == '\n' || c == 0xEF || c == 0xBB || c == 0xBF) {} // whitespace, UTF-8 BOM
+            return c == '[';
+        } catch (IOException ex) {
+            return false;
+        }
     }
 }
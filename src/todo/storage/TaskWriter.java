@@ -0,0 +1,78 @@
+package todo.storage;
+
+import todo.model.Task;
+
+import javax.swing.*;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Background persistence: save requests snapshot the model on the caller (EDT) and return at once;
+// a dedicated writer thread coalesces every request made within the window into a single atomic
+// write (temp file + fsync + rename, see TaskStorage.writeSnapshot).
+public final class TaskWriter {
+    private final Path path;
+    private final long windowMillis;
+    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "task-writer"); t.setDaemon(true); return t;
+    });
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private Object[] pending; // latest snapshot not yet written; guarded by this
+    private boolean scheduled;
+
+    public TaskWriter(Path path, long windowMillis) {
+        this.path = path;
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    // Coalescing window from -Dtodo.save.coalesceMs (default 300 ms).
+    public static TaskWriter withDefaultWindow(Path path) {
+        return new TaskWriter(path, Long.getLong("todo.save.coalesceMs", 300L));
+    }
+
+    // Snapshot the model (references only) and schedule a write. Tasks are encoded on the writer
+    // thread; an edit racing with that is harmless because the edit requests another save.
+    public void request(DefaultListModel<Task> model) {
+        Object[] snapshot = model.toArray();
+        requested.incrementAndGet();
+        synchronized (this) {
+            pending = snapshot;
+            if (scheduled) return;
+            scheduled = true;
+        }
+        exec.schedule(this::drain, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Write any pending snapshot now and wait for it to hit the disk.
+    public void flush() {
+        if (exec.isShutdown()) return;
+        try { exec.submit(this::drain).get(); }
+        catch (Exception ex) { System.err.println("Failed to flush tasks: " + ex.getMessage()); }
+    }
+
+    // Flush-on-exit: write what is pending and stop the writer thread.
+    public void close() {
+        flush();
+        exec.shutdown();
+    }
+
+    public long requestedCount() { return requested.get(); }
+    public long writtenCount() { return written.get(); }
+
+    @Override public String toString() { return "saves: " + requested.get() + " requested, " + written.get() + " written"; }
+
+    private void drain() {
+        Object[] snapshot;
+        synchronized (this) { snapshot = pending; pending = null; scheduled = false; }
+        if (snapshot == null) return;
+        try {
+            TaskStorage.writeSnapshot(path, snapshot, -1, NoteBlob.current(path));
+            written.incrementAndGet();
+        } catch (Exception ex) {
+            System.err.println("Failed to save tasks: " + ex.getMessage());
+        }
+    }
+}
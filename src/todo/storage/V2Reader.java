@@ -0,0 +1,200 @@
+package todo.storage;
+
+import todo.model.Priority;
+import todo.model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Streaming reader for the v1/v2 line formats. The file is read through a FileChannel in fixed
+// blocks cut at line boundaries; each block is scanned byte by byte (no regex, no per-line String)
+// and Base64 fields are decoded straight into a reusable buffer. Large files decode their blocks in
+// parallel on the common fork-join pool while the reader keeps streaming, with a bounded number of
+// blocks in flight, and results are returned in file order for a single bulk insert.
+final class V2Reader {
+    private static final int BLOCK = 1 << 20;                 // bytes per decode block
+    private static final long PARALLEL_THRESHOLD = 4L << 20;  // files smaller than this decode inline
+    private static final byte[][] PRIORITY_NAMES = new byte[Priority.values().length][];
+    private static final int[] BASE64 = new int[256];
+    static {
+        for (Priority p : Priority.values()) PRIORITY_NAMES[p.ordinal()] = p.name().getBytes(StandardCharsets.US_ASCII);
+        Arrays.fill(BASE64, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) BASE64[alphabet.charAt(i)] = i;
+    }
+
+    private V2Reader() {}
+
+    static List<Task> read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean parallel = ch.size() >= PARALLEL_THRESHOLD;
+            int maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+            Deque<ForkJoinTask<List<Task>>> inFlight = new ArrayDeque<>();
+            List<Task> out = new ArrayList<>();
+            Scanner inline = parallel ? null : new Scanner(path);
+
+            byte[] buf = new byte[BLOCK];
+            int len = 0;
+            while (true) {
+                int n = ch.read(ByteBuffer.wrap(buf, len, buf.length - len));
+                if (n > 0) len += n;
+                boolean eof = n < 0;
+                int cut = eof ? len : lastNewline(buf, len) + 1;
+                if (cut <= 0) {
+                    if (eof) break;
+                    if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2); // a line longer than a block
+                    continue;
+                }
+                if (parallel) {
+                    byte[] block = Arrays.copyOf(buf, cut);
+                    inFlight.add(ForkJoinPool.commonPool().submit(() -> new Scanner(path).decode(block, block.length)));
+                    while (inFlight.size() >= maxInFlight) out.addAll(inFlight.poll().join());
+                } else {
+                    out.addAll(inline.decode(buf, cut));
+                }
+                System.arraycopy(buf, cut, buf, 0, len - cut);
+                len -= cut;
+                if (eof) break;
+            }
+            while (!inFlight.isEmpty()) out.addAll(inFlight.poll().join());
+            return out;
+        }
+    }
+
+    private static int lastNewline(byte[] b, int len) {
+        for (int i = len - 1; i >= 0; i--) if (b[i] == '\n') return i;
+        return -1;
+    }
+
+    // Single-pass field scanner; one instance per thread, its decode buffer is reused across lines.
+    private static final class Scanner {
+        private final Path path; // out-of-line note refs resolve against this file's blobs
+        private final long now = System.currentTimeMillis();
+        private final int[] fieldStart = new int[10];
+        private final int[] fieldEnd = new int[10];
+        private byte[] scratch = new byte[256];
+        private int skipped;
+
+        Scanner(Path path) { this.path = path; }
+
+        List<Task> decode(byte[] b, int len) {
+            List<Task> out = new ArrayList<>(len / 64 + 1);
+            skipped = 0;
+            int line = 0;
+            while (line < len) {
+                int end = line;
+                while (end < len && b[end] != '\n') end++;
+                int stop = end > line && b[end - 1] == '\r' ? end - 1 : end;
+                if (stop > line) {
+                    try {
+                        Task t = decodeLine(b, line, stop);
+                        if (t != null) out.add(t);
+                    } catch (RuntimeException ex) {
+                        skipped++;
+                    }
+                }
+                line = end + 1;
+            }
+            if (skipped > 0) System.err.println("Skipped " + skipped + " malformed task line(s)");
+            return out;
+        }
+
+        private Task decodeLine(byte[] b, int from, int to) {
+            if (isBlank(b, from, to)) return null;
+            int fields = split(b, from, to);
+            if (to - from >= 3 && b[from] == 'v' && b[from + 1] == '2' && b[from + 2] == '|') {
+                if (fields < 7) return null; // header or truncated record
+                Task t = new Task(text(b, 5, true), b[fieldStart[1]] == '1' && fieldEnd[1] - fieldStart[1] == 1);
+                t.priority = priority(b, fieldStart[2], fieldEnd[2]);
+                t.dueAtMillis = fieldEnd[3] == fieldStart[3] ? null : parseLong(b, fieldStart[3], fieldEnd[3]);
+                t.createdAtMillis = fieldEnd[4] == fieldStart[4] ? now : parseLong(b, fieldStart[4], fieldEnd[4]);
+                String note = text(b, 6, false);
+                t.setNote(note.isEmpty() ? null : note);
+                if (fields >= 8 && fieldEnd[7] > fieldStart[7]) { t.id = parseLong(b, fieldStart[7], fieldEnd[7]); Task.reserveId(t.id); }
+                if (fields >= 9 && fieldEnd[8] > fieldStart[8]) t.setNoteRef(NoteBlob.parseRef(path, new String(b, fieldStart[8], fieldEnd[8] - fieldStart[8], StandardCharsets.US_ASCII)));
+                if (fields >= 10 && fieldEnd[9] > fieldStart[9]) t.rank = parseLong(b, fieldStart[9], fieldEnd[9]);
+                return t;
+            }
+            // v1: <completed>|base64(title)
+            if (fields < 2 || fieldEnd[0] == from || fieldStart[1] >= to) return null;
+            fieldEnd[1] = to; // v1 titles never contain '|', but keep the rest of the line like the old reader
+            return new Task(text(b, 1, true), b[from] == '1');
+        }
+
+        // Record field boundaries for up to 10 '|' separated fields; returns the field count.
+        private int split(byte[] b, int from, int to) {
+            int n = 0, start = from;
+            for (int i = from; i < to && n < fieldStart.length - 1; i++) {
+                if (b[i] == '|') { fieldStart[n] = start; fieldEnd[n++] = i; start = i + 1; }
+            }
+            fieldStart[n] = start; fieldEnd[n++] = to;
+            return n;
+        }
+
+        private String text(byte[] b, int field, boolean oneLine) {
+            int len = base64(b, fieldStart[field], fieldEnd[field]);
+            int s = 0, e = len;
+            if (oneLine) {
+                for (int i = 0; i < len; i++) if (scratch[i] == '\n' || scratch[i] == '\r') scratch[i] = ' ';
+                while (s < e && (scratch[s] & 0xff) <= ' ') s++;
+                while (e > s && (scratch[e - 1] & 0xff) <= ' ') e--;
+            }
+            return new String(scratch, s, e - s, StandardCharsets.UTF_8);
+        }
+
+        // Decode standard Base64 (with optional padding) into scratch; returns the decoded length.
+        private int base64(byte[] b, int from, int to) {
+            while (to > from && b[to - 1] == '=') to--;
+            int need = (to - from) * 3 / 4 + 3;
+            if (scratch.length < need) scratch = new byte[Math.max(need, scratch.length * 2)];
+            int out = 0, acc = 0, bits = 0;
+            for (int i = from; i < to; i++) {
+                int v = BASE64[b[i] & 0xff];
+                if (v < 0) throw new IllegalArgumentException("bad base64");
+                acc = (acc << 6) | v; bits += 6;
+                if (bits >= 8) { bits -= 8; scratch[out++] = (byte) (acc >> bits); }
+            }
+            return out;
+        }
+
+        private static Priority priority(byte[] b, int from, int to) {
+            outer:
+            for (Priority p : Priority.values()) {
+                byte[] name = PRIORITY_NAMES[p.ordinal()];
+                if (name.length != to - from) continue;
+                for (int i = 0; i < name.length; i++) if (name[i] != b[from + i]) continue outer;
+                return p;
+            }
+            return Priority.NORMAL;
+        }
+
+        private static long parseLong(byte[] b, int from, int to) {
+            boolean neg = b[from] == '-';
+            int i = neg ? from + 1 : from;
+            if (i >= to) throw new NumberFormatException("empty number");
+            long v = 0;
+            for (; i < to; i++) {
+                int d = b[i] - '0';
+                if (d < 0 || d > 9) throw new NumberFormatException("bad number");
+                v = v * 10 + d;
+            }
+            return neg ? -v : v;
+        }
+
+        private static boolean isBlank(byte[] b, int from, int to) {
+            for (int i = from; i < to; i++) if ((b[i] & 0xff) > ' ') return false;
+            return true;
+        }
+    }
+}
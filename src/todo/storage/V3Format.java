@@ -0,0 +1,196 @@
+package todo.storage;
+
+import todo.model.Priority;
+import todo.model.RecurrenceRule;
+import todo.model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Binary v3 snapshot: a fixed header, a table of fixed-width rows and one UTF-8 string section.
+//   header (40 bytes): "TDV3" | int version | int count | int rowSize | long journalSeq | long rowsOffset | long stringsOffset
+//   row (rowSize bytes): completed(1) priority(1) recurrence(1) reserved(1) titleLen(4) noteLen(4, -1 = null,
+//                        -2 = in the notes blob) extraLen(4) due(8, MIN_VALUE = none) created(8) stringOffset(8)
+//                        id(8, 0 = none) noteOffset(8) noteLength(4) noteGeneration(4)   (see NoteBlob)
+//                        rank(8, 0 = none; manual order)
+//   strings: per row title bytes, then note bytes, then extras (tags and subtasks, length-prefixed)
+// Readers use rowSize from the header, so rows can grow new trailing columns without breaking old files.
+// Strings are stored as plain UTF-8 (no Base64), and the file is memory-mapped on load: each row is
+// found by offset and decoded straight from the mapping, in parallel chunks.
+final class V3Format {
+    static final byte[] MAGIC = {'T', 'D', 'V', '3'};
+    private static final int VERSION = 3;
+    private static final int HEADER = 40;
+    private static final int ROW = 72;
+    private static final int CHUNK = 16 * 1024; // rows per parallel decode chunk
+    private static final long NO_DUE = Long.MIN_VALUE;
+
+    private V3Format() {}
+
+    static boolean isV3(Path path) {
+        if (!Files.isRegularFile(path)) return false;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(MAGIC.length);
+            while (b.hasRemaining() && ch.read(b) > 0) {}
+            return !b.hasRemaining() && Arrays.equals(b.array(), MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static long readJournalSeq(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(HEADER);
+            while (b.hasRemaining() && ch.read(b) > 0) {}
+            return b.hasRemaining() ? 0 : b.getLong(16);
+        }
+    }
+
+    static void write(FileChannel ch, Object[] tasks, long journalSeq, NoteBlob notes) throws IOException {
+        int count = tasks.length;
+        long rowsOffset = HEADER, stringsOffset = rowsOffset + (long) count * ROW;
+        ByteBuffer rows = ByteBuffer.allocate(ROW * 1024);
+        ByteBuffer strings = ByteBuffer.allocate(1 << 16);
+        long rowPos = rowsOffset, strPos = stringsOffset, strOff = 0;
+        for (Object o : tasks) {
+            Task t = (Task) o;
+            byte[] title = t.title.getBytes(StandardCharsets.UTF_8);
+            Task.NoteRef ref = notes == null ? null : notes.store(t);
+            String text = ref == null ? NoteBlob.text(t) : null;
+            byte[] note = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+            byte[] extra = encodeExtras(t);
+            rows.put((byte) (t.completed ? 1 : 0)).put((byte) t.priority.ordinal())
+                .put((byte) (t.recurrence == null ? 0 : t.recurrence.type.ordinal())).put((byte) 0)
+                .putInt(title.length).putInt(ref != null ? -2 : note == null ? -1 : note.length).putInt(extra.length)
+                .putLong(t.dueAtMillis == null ? NO_DUE : t.dueAtMillis).putLong(t.createdAtMillis)
+                .putLong(strOff).putLong(t.id)
+                .putLong(ref == null ? 0 : ref.offset).putInt(ref == null ? 0 : ref.length).putInt(ref == null ? 0 : ((NoteBlob) ref.source).generation)
+                .putLong(t.rank);
+            if (!rows.hasRemaining()) rowPos = flush(ch, rows, rowPos);
+            for (byte[] s : new byte[][]{title, note, extra}) {
+                if (s == null) continue;
+                strPos = put(ch, strings, strPos, s);
+                strOff += s.length;
+            }
+        }
+        flush(ch, rows, rowPos);
+        flush(ch, strings, strPos);
+        if (notes != null) notes.sync();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.put(MAGIC).putInt(VERSION).putInt(count).putInt(ROW).putLong(journalSeq)
+              .putLong(rowsOffset).putLong(stringsOffset);
+        flush(ch, header, 0);
+    }
+
+    static List<Task> read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("v3 file too large to map: " + ch.size() + " bytes");
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            byte[] magic = new byte[MAGIC.length];
+            map.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("not a v3 task file");
+            if (map.getInt(4) > VERSION) throw new IOException("unsupported task file version " + map.getInt(4));
+            int count = map.getInt(8), rowSize = map.getInt(12);
+            long rowsOffset = map.getLong(24), stringsOffset = map.getLong(32);
+            Task[] out = new Task[count];
+            int chunks = (count + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                ByteBuffer b = map.duplicate(); // absolute reads only, but keep each thread on its own view
+                byte[] scratch = new byte[256];
+                for (int i = c * CHUNK, end = Math.min(count, i + CHUNK); i < end; i++) {
+                    int row = (int) (rowsOffset + (long) i * rowSize);
+                    Task t = new Task("", b.get(row) != 0);
+                    int pr = b.get(row + 1);
+                    t.priority = pr >= 0 && pr < Priority.values().length ? Priority.values()[pr] : Priority.NORMAL;
+                    int rec = b.get(row + 2);
+                    if (rec > 0 && rec < RecurrenceRule.Type.values().length) t.recurrence = new RecurrenceRule(RecurrenceRule.Type.values()[rec]);
+                    int titleLen = b.getInt(row + 4), noteLen = b.getInt(row + 8), extraLen = b.getInt(row + 12);
+                    long due = b.getLong(row + 16);
+                    t.dueAtMillis = due == NO_DUE ? null : due;
+                    t.createdAtMillis = b.getLong(row + 24);
+                    long id = rowSize >= 48 ? b.getLong(row + 40) : 0;
+                    if (id > 0) { t.id = id; Task.reserveId(id); }
+                    int pos = (int) (stringsOffset + b.getLong(row + 32));
+                    if (scratch.length < Math.max(titleLen, Math.max(noteLen, extraLen))) scratch = new byte[Math.max(titleLen, Math.max(noteLen, extraLen))];
+                    b.get(pos, scratch, 0, titleLen);
+                    t.title = new String(scratch, 0, titleLen, StandardCharsets.UTF_8);
+                    pos += titleLen;
+                    if (noteLen >= 0) {
+                        b.get(pos, scratch, 0, noteLen);
+                        t.setNote(new String(scratch, 0, noteLen, StandardCharsets.UTF_8));
+                        pos += noteLen;
+                    } else if (noteLen == -2 && rowSize >= 64) {
+                        t.setNoteRef(NoteBlob.open(path, b.getInt(row + 60)).ref(b.getLong(row + 48), b.getInt(row + 56)));
+                    }
+                    if (extraLen > 0) decodeExtras(b, pos, t, scratch);
+                    if (rowSize >= 72) t.rank = b.getLong(row + 64);
+                    out[i] = t;
+                }
+            });
+            return Arrays.asList(out);
+        }
+    }
+
+    // extras: int tagCount, (int len, bytes)*, int subtaskCount, (byte done, int len, bytes)*
+    private static byte[] encodeExtras(Task t) {
+        if (t.tags.isEmpty() && t.subtasks.isEmpty()) return new byte[0];
+        byte[][] tags = new byte[t.tags.size()][];
+        byte[][] subs = new byte[t.subtasks.size()][];
+        int size = 8, i = 0;
+        for (String tag : t.tags) { tags[i] = tag.getBytes(StandardCharsets.UTF_8); size += 4 + tags[i++].length; }
+        for (i = 0; i < subs.length; i++) { subs[i] = t.subtasks.get(i).title.getBytes(StandardCharsets.UTF_8); size += 5 + subs[i].length; }
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.putInt(tags.length);
+        for (byte[] tag : tags) b.putInt(tag.length).put(tag);
+        b.putInt(subs.length);
+        for (i = 0; i < subs.length; i++) b.put((byte) (t.subtasks.get(i).done ? 1 : 0)).putInt(subs[i].length).put(subs[i]);
+        return b.array();
+    }
+
+    private static void decodeExtras(ByteBuffer b, int pos, Task t, byte[] scratch) {
+        int tags = b.getInt(pos); pos += 4;
+        for (int i = 0; i < tags; i++) {
+            int len = b.getInt(pos); pos += 4;
+            t.addTag(utf8(b, pos, len, scratch)); pos += len;
+        }
+        int subs = b.getInt(pos); pos += 4;
+        for (int i = 0; i < subs; i++) {
+            boolean done = b.get(pos++) != 0;
+            int len = b.getInt(pos); pos += 4;
+            Task.Subtask s = new Task.Subtask(utf8(b, pos, len, scratch)); s.done = done; t.subtasks.add(s);
+            pos += len;
+        }
+    }
+
+    private static String utf8(ByteBuffer b, int pos, int len, byte[] scratch) {
+        byte[] dst = len <= scratch.length ? scratch : new byte[len];
+        b.get(pos, dst, 0, len);
+        return new String(dst, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private static long put(FileChannel ch, ByteBuffer buf, long pos, byte[] data) throws IOException {
+        int off = 0;
+        while (off < data.length) {
+            int n = Math.min(buf.remaining(), data.length - off);
+            buf.put(data, off, n); off += n;
+            if (!buf.hasRemaining()) pos = flush(ch, buf, pos);
+        }
+        return pos;
+    }
+
+    private static long flush(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) pos += ch.write(buf, pos);
+        buf.clear();
+        return pos;
+    }
+}
@@ -0,0 +1,76 @@
+package todo.ui;
+
+import todo.diag.EdtMonitor;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// Help → Diagnostics: per-action latencies and recent EDT stalls from the EdtMonitor, read when the
+// dialog opens and on Refresh. Not modal, so it can stay open while the app is used.
+public class DiagnosticsDialog extends JDialog {
+    private final EdtMonitor monitor;
+    private final DefaultTableModel actions = new DefaultTableModel(new String[]{"Action", "Count", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms"}, 0) {
+        @Override public boolean isCellEditable(int row, int column) { return false; }
+        @Override public Class<?> getColumnClass(int column) { return column == 0 ? String.class : column == 1 ? Long.class : Double.class; }
+    };
+    private final DefaultListModel<EdtMonitor.Stall> stalls = new DefaultListModel<>();
+    private final JTextArea stack = new JTextArea(10, 60);
+    private final JLabel summary = new JLabel();
+
+    public DiagnosticsDialog(Window owner, EdtMonitor monitor) {
+        super(owner, "Diagnostics", ModalityType.MODELESS);
+        this.monitor = monitor;
+        JTable table = new JTable(actions);
+        table.setAutoCreateRowSorter(true);
+        table.setPreferredScrollableViewportSize(new Dimension(640, 160));
+        JList<EdtMonitor.Stall> stallList = new JList<>(stalls);
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss");
+        stallList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean sel, boolean focus) {
+                EdtMonitor.Stall s = (EdtMonitor.Stall) value;
+                String text = time.format(new Date(s.atMillis)) + "  " + s.millis() + " ms  " + (s.action == null ? s.event : s.action);
+                return super.getListCellRendererComponent(list, text, index, sel, focus);
+            }
+        });
+        stallList.addListSelectionListener(e -> {
+            EdtMonitor.Stall s = stallList.getSelectedValue();
+            stack.setText(s == null ? "" : s.toString());
+            stack.setCaretPosition(0);
+        });
+        stack.setEditable(false);
+        stack.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JSplitPane stallPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(stallList), new JScrollPane(stack));
+        stallPane.setResizeWeight(0.3);
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), stallPane);
+        split.setResizeWeight(0.4);
+
+        JButton refresh = new JButton("Refresh"); refresh.addActionListener(e -> refresh());
+        JButton reset = new JButton("Reset"); reset.addActionListener(e -> { monitor.reset(); refresh(); });
+        JButton close = new JButton("Close"); close.addActionListener(e -> dispose());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT)); buttons.add(refresh); buttons.add(reset); buttons.add(close);
+        JPanel south = new JPanel(new BorderLayout());
+        summary.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 0));
+        south.add(summary, BorderLayout.CENTER); south.add(buttons, BorderLayout.EAST);
+
+        getContentPane().add(split, BorderLayout.CENTER);
+        getContentPane().add(south, BorderLayout.SOUTH);
+        refresh();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private void refresh() {
+        actions.setRowCount(0);
+        monitor.actions().forEach((name, h) -> actions.addRow(new Object[]{name, h.count(), round(h.meanMillis()),
+                round(h.percentileMillis(0.5)), round(h.percentileMillis(0.95)), round(h.percentileMillis(0.99)), round(h.maxMillis())}));
+        stalls.clear();
+        for (EdtMonitor.Stall s : monitor.stalls()) stalls.addElement(s);
+        summary.setText(monitor + " • log: " + monitor.log().toAbsolutePath());
+    }
+
+    private static double round(double ms) { return Math.round(ms * 10) / 10.0; }
+}
@@ -14,11 +14,14 @@ public class EditTaskDialog extends JDialog {
     private final JComboBox<Priority> priority = new JComboBox<>(Priority.values());
     private final JCheckBox dueEnable = new JCheckBox("Due:");
     private final JSpinner dueSpinner = new JSpinner(new javax.swing.SpinnerDateModel());
+    private final String shownNote; // left untouched, the task keeps its note (even one that failed to load)
 
     public EditTaskDialog(Window owner, Task task) {
         super(owner, "Edit Task", ModalityType.APPLICATION_MODAL);
         title.setText(task.title);
-        desc.setText(task.note == null ? "" : task.note);
+        String note = task.note();
+        shownNote = note == null ? "" : note;
+        desc.setText(shownNote);
         desc.setLineWrap(true); desc.setWrapStyleWord(true);
         priority.setSelectedItem(task.priority);
         JSpinner.DateEditor de = new JSpinner.DateEditor(dueSpinner, "yyyy-MM-dd");
@@ -57,7 +60,7 @@ public class EditTaskDialog extends JDialog {
         if (!ok) return false;
         String newTitle = title.getText().trim(); if (newTitle.isBlank()) return false;
         t.title = newTitle;
-        String d = desc.getText().trim(); t.note = d.isEmpty()?null:d;
+        String d = desc.getText(); if (!d.equals(shownNote)) { d = d.trim(); t.setNote(d.isEmpty()?null:d); }
         t.priority = (Priority) priority.getSelectedItem();
         if (dueEnable.isSelected()) t.dueAtMillis = DateUtil.startOfDayMillis((java.util.Date) dueSpinner.getValue());
         else t.dueAtMillis = null;
@@ -0,0 +1,49 @@
+package todo.ui;
+
+import todo.view.FacetIndex;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Sidebar listing every tag with its live task count, read from the facet bitmaps (no list scan).
+// Index changes arrive per task, so refreshes are coalesced into one per event-queue turn.
+public class TagPanel extends JPanel {
+    private final FacetIndex facets;
+    private final DefaultListModel<String> tags = new DefaultListModel<>();
+    private final JList<String> list = new JList<>(tags);
+    private boolean refreshQueued;
+
+    public TagPanel(FacetIndex facets, Consumer<String> onSelect) {
+        super(new BorderLayout(0, 4));
+        this.facets = facets;
+        add(new JLabel("Tags"), BorderLayout.NORTH);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setToolTipText("Click a tag to search for it");
+        list.addListSelectionListener(e -> {
+            if (e.getValueIsAdjusting() || list.getSelectedIndex() < 0) return;
+            String v = list.getSelectedValue();
+            onSelect.accept(v.substring(0, v.lastIndexOf(" (")));
+            SwingUtilities.invokeLater(list::clearSelection);
+        });
+        JScrollPane scroll = new JScrollPane(list);
+        scroll.setPreferredSize(new Dimension(140, 0));
+        add(scroll, BorderLayout.CENTER);
+        facets.addTagListener(this::queueRefresh);
+        refresh();
+    }
+
+    private void queueRefresh() {
+        if (refreshQueued) return;
+        refreshQueued = true;
+        SwingUtilities.invokeLater(this::refresh);
+    }
+
+    private void refresh() {
+        refreshQueued = false;
+        tags.clear();
+        for (Map.Entry<String, Integer> e : facets.tagCounts().entrySet()) tags.addElement(e.getKey() + " (" + e.getValue() + ")");
+        setVisible(!tags.isEmpty());
+    }
+}
@@ -7,19 +7,56 @@ import todo.util.UiUtil;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import javax.swing.plaf.basic.BasicHTML;
 import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
 
+// Rubber stamp for the task list. Configuring a cell allocates nothing once warm: fonts, colors and the
+// stripe are derived once per list font/colors/look and feel (Style), the border is one LineBorder whose
+// color is swapped, priority dots are shared icons, due labels are cached per due day, and the child
+// components skip the revalidate/repaint/property events a stamp does not need (as DefaultListCellRenderer
+// does); the layout is invalidated explicitly instead. The tooltip note is loaded only when asked for.
+// With -Dtodo.render.stats=true the bytes allocated per cell are counted (see stats()).
+// Measured sizes are cached per task (id -> version, size) for the current list width, description
+// setting and style, so re-measuring the list after a contents change only lays out edited tasks.
+// Compact mode drops the wrapped note for a one-line preview; its rows all have compactHeight(),
+// which the list takes as a fixed cell height and so never measures rows at all.
 public class TaskCellRenderer extends JPanel implements ListCellRenderer<Task> {
     public static volatile boolean showDescription = true;
+    public static volatile boolean compact = Boolean.getBoolean("todo.list.compact");
+    private static final com.sun.management.ThreadMXBean THREADS = Boolean.getBoolean("todo.render.stats")
+            && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean b && b.isThreadAllocatedMemorySupported() ? b : null;
+    private static long cells, configureBytes, paints, paintBytes; // EDT only
+
     private final JCheckBox check = new JCheckBox();
-    private final JLabel title = new JLabel();
-    private final JTextArea desc = new JTextArea();
-    private final JLabel meta = new JLabel();
+    private final JLabel title = new StampLabel();
+    private final JTextArea desc = new JTextArea() {
+        @Override public void revalidate() {}
+        @Override public void repaint(long tm, int x, int y, int w, int h) {}
+        @Override public void repaint(Rectangle r) {}
+    };
+    private final JLabel meta = new StampLabel();
+    private final JLabel preview = new StampLabel(); // compact mode: first line of the note
+    private final JPanel header = new JPanel(new BorderLayout());
+    private final CellBorder border = new CellBorder();
+    private final Map<Long, String> dueText = new HashMap<>(), overdueText = new HashMap<>();
+    private Style style;
+    private String shownNote = "", pendingNote = "";
+    private Task tipTask;
+    private final SizeCache sizes = new SizeCache();
+    private int sizedWidth = -1;
+    private boolean sizedDesc, sizedCompact;
 
     public TaskCellRenderer() {
         super(new BorderLayout(6, 0));
         setOpaque(true);
         check.setOpaque(false);
+        // selection state without the ItemEvent a DefaultButtonModel allocates per change
+        check.setModel(new JToggleButton.ToggleButtonModel() {
+            @Override public void setSelected(boolean b) { if (b != isSelected()) stateMask ^= SELECTED; }
+        });
 
         // Title styling: a bit larger and bold-ish by default; adjusted in renderer
         title.setOpaque(false);
@@ -35,80 +72,246 @@ public class TaskCellRenderer extends JPanel implements ListCellRenderer<Task> {
         meta.setBorder(new EmptyBorder(0, 0, 0, 0));
 
         // Build a content block: header (title + meta) over description
-        JPanel header = new JPanel(new BorderLayout());
         header.setOpaque(false);
         header.add(title, BorderLayout.CENTER);
         header.add(meta, BorderLayout.EAST);
 
-        JPanel content = new JPanel();
+        JPanel content = new JPanel(new BorderLayout());
         content.setOpaque(false);
-        content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
-        content.add(header);
-        content.add(desc);
+        content.add(header, BorderLayout.NORTH);
+        content.add(desc, BorderLayout.CENTER);
+        content.add(preview, BorderLayout.SOUTH);
 
         add(check, BorderLayout.WEST);
         add(content, BorderLayout.CENTER);
 
-        setBorder(new EmptyBorder(6, 6, 6, 6));
+        setBorder(border);
     }
 
     @Override
     public Component getListCellRendererComponent(JList<? extends Task> list, Task value, int index,
                                                   boolean isSelected, boolean cellHasFocus) {
+        long before = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+        Style s = style(list);
         // Checkbox reflects completion state; title shows text with a priority dot.
         check.setSelected(value.completed);
         title.setText(value.title);
         title.setIcon(UiUtil.priorityDot(value.priority));
 
         // Title and description fonts
-        Font base = list.getFont();
-        Font titleFont = base.deriveFont(base.getStyle() | Font.BOLD, base.getSize2D() + 1.5f);
-        Font descFont = base.deriveFont(Font.PLAIN, Math.max(11f, base.getSize2D() - 1f));
-        title.setFont(titleFont);
-        desc.setFont(descFont);
-        Color darkDesc = new Color(90, 90, 90);
-        desc.setForeground(darkDesc);
-        desc.setText(value.note == null ? "" : value.note);
-        boolean hasDesc = value.note != null && !value.note.isBlank();
-        desc.setVisible(showDescription && hasDesc);
+        title.setFont(s.titleFont);
+        desc.setFont(s.descFont);
+        preview.setFont(s.descFont);
+        // Notes may live out of line; only rows that are actually painted load them (through the cache).
+        boolean compact = TaskCellRenderer.compact, hasDesc = showDescription && value.hasNote();
+        String note = hasDesc ? value.note() : null;
+        if (note == null) note = "";
+        if (compact) {
+            int nl = note.indexOf('\n');
+            preview.setText(nl < 0 ? note : note.substring(0, nl));
+        } else pendingNote = note; // set on the text area only when laid out (see syncNote)
+        desc.setVisible(hasDesc && !compact);
+        preview.setVisible(hasDesc && compact);
+        // only wrapped notes depend on the width
+        boolean widthMatters = showDescription && !compact;
+        if (widthMatters && list.getWidth() != sizedWidth || showDescription != sizedDesc || compact != sizedCompact) {
+            sizes.clear();
+            sizedWidth = list.getWidth(); sizedDesc = showDescription; sizedCompact = compact;
+        }
 
         // Meta: due date if present; highlight when overdue.
         boolean hasDue = value.dueAtMillis != null;
         boolean overdue = hasDue && System.currentTimeMillis() > value.dueAtMillis && !value.completed;
-        String mt = hasDue ? ((overdue ? "⏰ " : "🗓 ") + DateUtil.formatDue(value.dueAtMillis)) : "";
-        meta.setText(mt);
+        meta.setText(hasDue ? dueText(value.dueAtMillis, overdue) : "");
 
-        // Tooltip shows description if present
-        String tip = value.note != null && !value.note.isBlank() ? value.note : null;
-        setToolTipText(tip);
+        // Tooltip shows description if present (see getToolTipText)
+        tipTask = value;
 
         if (isSelected) {
-            setBackground(list.getSelectionBackground());
-            title.setForeground(list.getSelectionForeground());
-            meta.setForeground(list.getSelectionForeground());
+            setBackground(s.selBg);
+            title.setForeground(s.selFg);
+            meta.setForeground(s.selFg);
             // Keep description consistently darker; if completed, use muted
-            Color muted = UIManager.getColor("Label.disabledForeground");
-            if (value.completed && muted != null) desc.setForeground(muted); else desc.setForeground(darkDesc);
-            setBorder(new LineBorder(list.getSelectionBackground().darker(), 1, true));
+            desc.setForeground(value.completed ? s.muted : s.darkDesc);
+            preview.setForeground(s.selFg);
+            border.color(s.selLine);
         } else {
-            Color bg = list.getBackground();
-            if (index % 2 == 0) {
-                setBackground(UiUtil.blend(bg, Color.BLACK, 0.02));
-            } else {
-                setBackground(bg);
-            }
-            title.setForeground(list.getForeground());
-            if (value.completed) {
-                Color muted = UIManager.getColor("Label.disabledForeground");
-                if (muted == null) muted = new Color(120, 120, 120);
-                title.setForeground(muted);
-                desc.setForeground(muted);
-            } else {
-                desc.setForeground(darkDesc);
-            }
-            if (overdue) meta.setForeground(new Color(200, 60, 60)); else meta.setForeground(list.getForeground());
-            setBorder(new LineBorder(UiUtil.blend(bg, Color.BLACK, 0.08), 1, true));
+            setBackground(index % 2 == 0 ? s.stripe : s.bg);
+            title.setForeground(value.completed ? s.muted : s.fg);
+            desc.setForeground(value.completed ? s.muted : s.darkDesc);
+            preview.setForeground(value.completed ? s.muted : s.darkDesc);
+            meta.setForeground(overdue ? s.overdue : s.fg);
+            border.color(s.line);
         }
+        header.invalidate(); // and up through this panel; the children no longer do it themselves
+        if (THREADS != null) { cells++; configureBytes += THREADS.getCurrentThreadAllocatedBytes() - before; }
         return this;
     }
+
+    // Size of the configured cell: cached per task version; a miss lays the cell out at the list's width
+    // first, so the wrapped note is measured at the width it will be painted at.
+    @Override public Dimension getPreferredSize() {
+        Task t = tipTask;
+        if (t == null || isPreferredSizeSet()) return super.getPreferredSize();
+        long v = sizes.get(t.id);
+        if (v != SizeCache.MISSING && (int) (v >>> 32) == t.version) return new Dimension((int) (v >>> 16) & 0xffff, (int) v & 0xffff);
+        syncNote();
+        if (sizedWidth > 0 && showDescription && !compact) { setSize(sizedWidth, Short.MAX_VALUE); validate(); }
+        Dimension d = super.getPreferredSize();
+        sizes.put(t.id, (long) t.version << 32 | (long) Math.min(d.width, 0xffff) << 16 | Math.min(d.height, 0xffff));
+        return d;
+    }
+
+    // Row height of every cell in compact mode (call with compact set): the title line, plus the note
+    // preview line when descriptions are shown.
+    public int compactHeight(JList<Task> list) {
+        Task sample = new Task("Xg", false);
+        sample.dueAtMillis = 0L;
+        sample.setNote("Xg");
+        getListCellRendererComponent(list, sample, 0, false, false);
+        return super.getPreferredSize().height;
+    }
+
+    @Override public String getToolTipText() {
+        Task t = tipTask;
+        String note = t != null && t.hasNote() ? t.note() : null;
+        return note != null && !note.isBlank() ? note : null;
+    }
+
+    // Layout and painting of a stamped cell (counted together as paint time).
+    @Override public void validate() {
+        syncNote();
+        if (THREADS == null) { super.validate(); return; }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        super.validate();
+        paintBytes += THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    @Override public void paint(Graphics g) {
+        if (THREADS == null) { super.paint(g); return; }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        super.paint(g);
+        paints++;
+        paintBytes += THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    // The note goes into the text area (a document edit) only for cells that are measured or painted,
+    // not for the cache hits of a re-measure.
+    private void syncNote() {
+        if (!pendingNote.equals(shownNote)) { desc.setText(pendingNote); shownNote = pendingNote; }
+    }
+
+    // Per-cell allocation counters, or null unless -Dtodo.render.stats=true.
+    public static String stats() {
+        if (THREADS == null) return null;
+        return "renderer: " + cells + " cells, " + (cells == 0 ? 0 : configureBytes / cells) + " B/cell configuring; "
+                + paints + " paints, " + (paints == 0 ? 0 : paintBytes / paints) + " B/cell layout+paint";
+    }
+
+    // Overridden for performance reasons, as in DefaultListCellRenderer.
+    @Override public void revalidate() {}
+    @Override public void repaint(long tm, int x, int y, int w, int h) {}
+    @Override public void repaint(Rectangle r) {}
+    @Override protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {}
+    @Override public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {}
+
+    private String dueText(Long due, boolean overdue) {
+        Map<Long, String> m = overdue ? overdueText : dueText;
+        String s = m.get(due);
+        if (s == null) {
+            if (m.size() > 4096) m.clear();
+            s = (overdue ? "⏰ " : "🗓 ") + DateUtil.formatDue(due);
+            m.put(due, s);
+        }
+        return s;
+    }
+
+    private Style style(JList<?> list) {
+        LookAndFeel laf = UIManager.getLookAndFeel();
+        Style s = style;
+        if (s == null || s.laf != laf || s.base != list.getFont() || s.bg != list.getBackground() || s.fg != list.getForeground()
+                || s.selBg != list.getSelectionBackground() || s.selFg != list.getSelectionForeground()) {
+            style = s = new Style(list, laf);
+            dueText.clear(); overdueText.clear(); sizes.clear();
+        }
+        return s;
+    }
+
+    // Everything a cell derives from the list's font and colors and the look and feel.
+    private static final class Style {
+        final LookAndFeel laf;
+        final Font base, titleFont, descFont;
+        final Color bg, fg, selBg, selFg, stripe, muted, darkDesc = new Color(90, 90, 90), overdue = new Color(200, 60, 60);
+        final Color line, selLine;
+
+        Style(JList<?> list, LookAndFeel laf) {
+            this.laf = laf;
+            base = list.getFont();
+            titleFont = base.deriveFont(base.getStyle() | Font.BOLD, base.getSize2D() + 1.5f);
+            descFont = base.deriveFont(Font.PLAIN, Math.max(11f, base.getSize2D() - 1f));
+            bg = list.getBackground(); fg = list.getForeground();
+            selBg = list.getSelectionBackground(); selFg = list.getSelectionForeground();
+            stripe = UiUtil.blend(bg, Color.BLACK, 0.02);
+            line = UiUtil.blend(bg, Color.BLACK, 0.08);
+            selLine = selBg.darker();
+            Color m = UIManager.getColor("Label.disabledForeground");
+            muted = m != null ? m : new Color(120, 120, 120);
+        }
+    }
+
+    // Open-addressing map of task id -> (version << 32 | width << 16 | height), no boxing.
+    private static final class SizeCache {
+        static final long MISSING = -1;
+        private long[] ids = new long[1024], vals = new long[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        long get(long id) {
+            int mask = ids.length - 1;
+            for (int i = slot(id, mask); used[i]; i = (i + 1) & mask) if (ids[i] == id) return vals[i];
+            return MISSING;
+        }
+
+        void put(long id, long val) {
+            if (size * 2 >= ids.length) grow();
+            int mask = ids.length - 1, i = slot(id, mask);
+            while (used[i] && ids[i] != id) i = (i + 1) & mask;
+            if (!used[i]) { used[i] = true; ids[i] = id; size++; }
+            vals[i] = val;
+        }
+
+        void clear() { if (size > 0) { java.util.Arrays.fill(used, false); size = 0; } }
+
+        private static int slot(long id, int mask) { return (int) (id * 0x9E3779B97F4A7C15L >>> 40) & mask; }
+
+        private void grow() {
+            long[] oldIds = ids, oldVals = vals;
+            boolean[] oldUsed = used;
+            ids = new long[oldIds.length * 2]; vals = new long[oldIds.length * 2]; used = new boolean[oldIds.length * 2];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) if (oldUsed[i]) put(oldIds[i], oldVals[i]);
+        }
+    }
+
+    // The rounded 1px cell outline; one instance, recolored per cell instead of replaced.
+    private static final class CellBorder extends LineBorder {
+        CellBorder() { super(Color.GRAY, 1, true); }
+        void color(Color c) { lineColor = c; }
+    }
+
+    // A label for the stamp: no revalidate/repaint, and property events only where the HTML view needs them.
+    private static final class StampLabel extends JLabel {
+        @Override public void revalidate() {}
+        @Override public void repaint(long tm, int x, int y, int w, int h) {}
+        @Override public void repaint(Rectangle r) {}
+        @Override protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+            if (propertyName == "text" && (isHtml(oldValue) || isHtml(newValue))
+                    || (propertyName == "font" || propertyName == "foreground") && oldValue != newValue && getClientProperty(BasicHTML.propertyKey) != null) {
+                super.firePropertyChange(propertyName, oldValue, newValue);
+            }
+        }
+        @Override public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {}
+
+        private static boolean isHtml(Object text) { return text instanceof String s && BasicHTML.isHTMLString(s); }
+    }
 }
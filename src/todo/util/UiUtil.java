@@ -24,14 +24,23 @@ public final class UiUtil {
         };
     }
 
-    // Small colored dot icon for priority.
-    public static Icon priorityDot(Priority p) {
-        int d = 8; Color col = priorityColor(p);
+    // Small colored dot icon for priority: one shared, stateless instance per level (renderers call this per cell).
+    private static final Icon[] DOTS = new Icon[Priority.values().length];
+    static { for (Priority p : Priority.values()) DOTS[p.ordinal()] = dot(priorityColor(p)); }
+
+    public static Icon priorityDot(Priority p) { return DOTS[p.ordinal()]; }
+
+    private static Icon dot(Color col) {
+        int d = 8;
         return new Icon() {
             public void paintIcon(Component c, Graphics g, int x, int y) {
-                Graphics2D g2 = (Graphics2D) g.create();
+                Graphics2D g2 = (Graphics2D) g;
+                Object aa = g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+                Color old = g2.getColor();
                 g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(col); g2.fillOval(x, y + (getIconHeight()-d)/2, d, d); g2.dispose();
+                g2.setColor(col); g2.fillOval(x, y + (getIconHeight()-d)/2, d, d);
+                g2.setColor(old);
+                if (aa != null) g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, aa);
             }
             public int getIconWidth() { return d + 4; }
             public int getIconHeight() { return d + 4; }
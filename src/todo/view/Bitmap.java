@@ -0,0 +1,131 @@
+package todo.view;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Compressed set of document numbers, split into chunks of 65536 by the high 16 bits. A sparse chunk
+// is a sorted char[] of its low 16 bits; once it passes ARRAY_MAX entries it becomes a 1024-word bit
+// array (and goes back below ARRAY_MAX / 2). A rare tag over a million tasks therefore costs a few
+// bytes per task carrying it, not a bit per task in the list. Query code combines bitmaps by
+// expanding them into a BitSet (toBitSet) and using the word-wise and/or/andNot there.
+final class Bitmap {
+    private static final int ARRAY_MAX = 4096;
+
+    private char[] keys = new char[4];        // chunk keys (doc >>> 16), sorted
+    private Object[] chunks = new Object[4];  // char[] (sorted, sizes[i] used) or long[1024]
+    private int[] sizes = new int[4];
+    private int count;                        // chunks in use
+    private int cardinality;
+
+    int cardinality() { return cardinality; }
+
+    boolean contains(int doc) {
+        int c = chunk((char) (doc >>> 16));
+        if (c < 0) return false;
+        char low = (char) doc;
+        return chunks[c] instanceof long[] words ? (words[low >>> 6] & (1L << low)) != 0
+                : Arrays.binarySearch((char[]) chunks[c], 0, sizes[c], low) >= 0;
+    }
+
+    void add(int doc) {
+        char key = (char) (doc >>> 16), low = (char) doc;
+        int c = chunk(key);
+        if (c < 0) c = insertChunk(-c - 1, key);
+        if (chunks[c] instanceof long[] words) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) return;
+            words[low >>> 6] |= bit;
+        } else {
+            char[] a = (char[]) chunks[c];
+            int n = sizes[c], i = n > 0 && a[n - 1] < low ? -n - 1 : Arrays.binarySearch(a, 0, n, low);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (n == ARRAY_MAX) { chunks[c] = toWords(a, n); sizes[c] = n; add(doc); return; }
+            if (n == a.length) chunks[c] = a = Arrays.copyOf(a, Math.min(ARRAY_MAX, n * 2));
+            System.arraycopy(a, i, a, i + 1, n - i);
+            a[i] = low;
+        }
+        sizes[c]++;
+        cardinality++;
+    }
+
+    void remove(int doc) {
+        int c = chunk((char) (doc >>> 16));
+        if (c < 0) return;
+        char low = (char) doc;
+        if (chunks[c] instanceof long[] words) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) return;
+            words[low >>> 6] &= ~bit;
+            if (--sizes[c] < ARRAY_MAX / 2) chunks[c] = toArray(words, sizes[c]);
+        } else {
+            char[] a = (char[]) chunks[c];
+            int i = Arrays.binarySearch(a, 0, sizes[c], low);
+            if (i < 0) return;
+            System.arraycopy(a, i + 1, a, i, sizes[c] - i - 1);
+            sizes[c]--;
+        }
+        cardinality--;
+        if (sizes[c] == 0) removeChunk(c);
+    }
+
+    // Set every member in out (out is not cleared first).
+    BitSet orInto(BitSet out) {
+        for (int c = 0; c < count; c++) {
+            int base = keys[c] << 16;
+            if (chunks[c] instanceof long[] words) {
+                for (int w = 0; w < words.length; w++) {
+                    for (long bits = words[w]; bits != 0; bits &= bits - 1) out.set(base + (w << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            } else {
+                char[] a = (char[]) chunks[c];
+                for (int i = 0; i < sizes[c]; i++) out.set(base + a[i]);
+            }
+        }
+        return out;
+    }
+
+    BitSet toBitSet() { return orInto(new BitSet()); }
+
+    private int chunk(char key) {
+        // most lists have a single chunk (under 65536 tasks)
+        if (count == 1) return keys[0] == key ? 0 : key < keys[0] ? -1 : -2;
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    private int insertChunk(int i, char key) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            chunks = Arrays.copyOf(chunks, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, count - i);
+        System.arraycopy(chunks, i, chunks, i + 1, count - i);
+        System.arraycopy(sizes, i, sizes, i + 1, count - i);
+        keys[i] = key; chunks[i] = new char[4]; sizes[i] = 0;
+        count++;
+        return i;
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, count - i - 1);
+        System.arraycopy(sizes, i + 1, sizes, i, count - i - 1);
+        chunks[--count] = null;
+    }
+
+    private static long[] toWords(char[] a, int n) {
+        long[] words = new long[1024];
+        for (int i = 0; i < n; i++) words[a[i] >>> 6] |= 1L << a[i];
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int n) {
+        char[] a = new char[Math.max(4, n)];
+        int k = 0;
+        for (int w = 0; w < words.length; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) a[k++] = (char) ((w << 6) + Long.numberOfTrailingZeros(bits));
+        }
+        return a;
+    }
+}
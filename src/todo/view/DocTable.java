@@ -0,0 +1,113 @@
+package todo.view;
+
+import todo.model.Task;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Gives every task in the source a dense document number (freed numbers are reused) and mirrors the
+// source by position, so the indexes (TextIndex, FacetIndex) can key their postings and bitmaps by
+// small ints and share one document space. Driven by FilteredSortedListModel, which forwards each
+// source delta here before updating its own rows; the indexes hear about it through Sink.
+final class DocTable {
+    interface Sink {
+        void indexed(int doc, Task t);
+        void unindexed(int doc);
+        void updated(int doc, Task t); // same task, fields may have changed
+    }
+
+    private final DefaultListModel<Task> source;
+    private final List<Sink> sinks = new ArrayList<>();
+    private int[] docAt = new int[16];  // source position -> document
+    private int positions;
+    private Task[] docs = new Task[16]; // document -> task (null = free)
+    private int[] posOf = new int[16];  // document -> source position
+    private final BitSet live = new BitSet();
+    private int[] free = new int[16];
+    private int freeCount, nextDoc;
+
+    DocTable(DefaultListModel<Task> source) {
+        this.source = source;
+        added(0, source.size() - 1);
+    }
+
+    void addSink(Sink s) { sinks.add(s); }
+
+    int docAt(int pos) { return docAt[pos]; }
+    int posOf(int doc) { return posOf[doc]; }
+    // Position -> document for the current positions; the live array (may be longer than the list).
+    int[] docArray() { return docAt; }
+    int[] snapshot() { return Arrays.copyOf(docAt, positions); }
+    Task task(int doc) { return doc < docs.length ? docs[doc] : null; }
+    int capacity() { return nextDoc; }
+    int size() { return positions; }
+    // Documents currently in the list (a copy).
+    BitSet live() { return (BitSet) live.clone(); }
+
+    void added(int from, int to) {
+        int count = to - from + 1;
+        if (count <= 0) return;
+        if (docAt.length < positions + count) docAt = Arrays.copyOf(docAt, Math.max(positions + count, docAt.length * 2));
+        System.arraycopy(docAt, from, docAt, to + 1, positions - from);
+        positions += count;
+        for (int pos = from; pos <= to; pos++) docAt[pos] = assign(source.get(pos));
+        reposition(from);
+    }
+
+    void removed(int from, int to) {
+        for (int pos = from; pos <= to; pos++) release(docAt[pos]);
+        System.arraycopy(docAt, to + 1, docAt, from, positions - to - 1);
+        positions -= to - from + 1;
+        reposition(from);
+    }
+
+    // An unspecified range (negative indexes) means any row may have changed.
+    void changed(int from, int to) {
+        if (from < 0 || to < 0) { from = 0; to = positions - 1; }
+        for (int pos = from; pos <= to && pos < positions; pos++) {
+            int doc = docAt[pos];
+            Task t = source.get(pos);
+            if (docs[doc] == t) { for (Sink s : sinks) s.updated(doc, t); continue; }
+            release(doc);
+            docAt[pos] = assign(t);
+            posOf[docAt[pos]] = pos;
+        }
+    }
+
+    // A committed batch (TaskListModel.BatchEvent): old positions removed (ascending) in one pass, then the
+    // appended range, then the positions edited in place.
+    void batch(int[] gone, int addedFrom, int addedCount, int[] edited) {
+        if (gone.length > 0) {
+            int w = gone[0];
+            for (int pos = gone[0], k = 0; pos < positions; pos++) {
+                if (k < gone.length && gone[k] == pos) { release(docAt[pos]); k++; } else docAt[w++] = docAt[pos];
+            }
+            positions = w;
+            reposition(gone[0]);
+        }
+        added(addedFrom, addedFrom + addedCount - 1);
+        for (int pos : edited) changed(pos, pos);
+    }
+
+    private void reposition(int from) { for (int pos = from; pos < positions; pos++) posOf[docAt[pos]] = pos; }
+
+    private int assign(Task t) {
+        int doc = freeCount > 0 ? free[--freeCount] : nextDoc++;
+        if (doc >= docs.length) { docs = Arrays.copyOf(docs, docs.length * 2); posOf = Arrays.copyOf(posOf, docs.length); }
+        docs[doc] = t;
+        live.set(doc);
+        for (Sink s : sinks) s.indexed(doc, t);
+        return doc;
+    }
+
+    private void release(int doc) {
+        for (Sink s : sinks) s.unindexed(doc);
+        docs[doc] = null;
+        live.clear(doc);
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = doc;
+    }
+}
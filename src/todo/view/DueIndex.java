@@ -0,0 +1,117 @@
+package todo.view;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Due dates of the documents that have one, sorted by (due, document): a two-level B-tree of primitive
+// blocks (at most BLOCK entries each, split when full) with a binary search over the blocks' last
+// entries, so an insert or removal costs O(log n + BLOCK) and a range of k entries O(log n + k). Keyed
+// by dueAtMillis, which tasks store as the local start of the day, so the order is the epoch-day order
+// while due< / due> stay exact. Maintained by FacetIndex.
+final class DueIndex {
+    private static final int BLOCK = 1024;
+
+    interface Visitor { boolean visit(long due, int doc); } // false stops the walk
+
+    private long[][] dues = {new long[BLOCK]};
+    private int[][] docs = {new int[BLOCK]};
+    private int[] sizes = new int[1];
+    private int blocks = 1, count;
+
+    int size() { return count; }
+
+    void add(long due, int doc) {
+        int b = block(due, doc);
+        int i = find(b, due, doc);
+        if (i >= 0) return;
+        i = -i - 1;
+        if (sizes[b] == BLOCK) {
+            split(b);
+            if (i > BLOCK / 2) { b++; i -= BLOCK / 2; }
+        }
+        int n = sizes[b];
+        System.arraycopy(dues[b], i, dues[b], i + 1, n - i);
+        System.arraycopy(docs[b], i, docs[b], i + 1, n - i);
+        dues[b][i] = due; docs[b][i] = doc;
+        sizes[b]++;
+        count++;
+    }
+
+    void remove(long due, int doc) {
+        int b = block(due, doc);
+        int i = find(b, due, doc);
+        if (i < 0) return;
+        int n = sizes[b];
+        System.arraycopy(dues[b], i + 1, dues[b], i, n - i - 1);
+        System.arraycopy(docs[b], i + 1, docs[b], i, n - i - 1);
+        sizes[b]--;
+        count--;
+        if (sizes[b] == 0 && blocks > 1) dropBlock(b);
+    }
+
+    // Documents due in [from, to].
+    BitSet range(long from, long to) {
+        BitSet out = new BitSet();
+        walk(from, (due, doc) -> { if (due > to) return false; out.set(doc); return true; });
+        return out;
+    }
+
+    // Visit entries in due order, starting at the first one due at or after from.
+    void walk(long from, Visitor v) {
+        int b = block(from, Integer.MIN_VALUE);
+        int i = -find(b, from, Integer.MIN_VALUE) - 1;
+        for (; b < blocks; b++, i = 0) {
+            long[] d = dues[b]; int[] x = docs[b];
+            for (int n = sizes[b]; i < n; i++) if (!v.visit(d[i], x[i])) return;
+        }
+    }
+
+    // First block whose last entry is >= (due, doc), or the last block.
+    private int block(long due, int doc) {
+        int lo = 0, hi = blocks - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1, last = sizes[mid] - 1;
+            if (last >= 0 && compare(dues[mid][last], docs[mid][last], due, doc) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // Index of (due, doc) in block b, or -(insertion point) - 1.
+    private int find(int b, long due, int doc) {
+        int lo = 0, hi = sizes[b] - 1;
+        long[] d = dues[b]; int[] x = docs[b];
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1, c = compare(d[mid], x[mid], due, doc);
+            if (c < 0) lo = mid + 1; else if (c > 0) hi = mid - 1; else return mid;
+        }
+        return -lo - 1;
+    }
+
+    private static int compare(long dueA, int docA, long dueB, int docB) {
+        int c = Long.compare(dueA, dueB);
+        return c != 0 ? c : Integer.compare(docA, docB);
+    }
+
+    private void split(int b) {
+        if (blocks == sizes.length) {
+            dues = Arrays.copyOf(dues, blocks * 2); docs = Arrays.copyOf(docs, blocks * 2); sizes = Arrays.copyOf(sizes, blocks * 2);
+        }
+        System.arraycopy(dues, b + 1, dues, b + 2, blocks - b - 1);
+        System.arraycopy(docs, b + 1, docs, b + 2, blocks - b - 1);
+        System.arraycopy(sizes, b + 1, sizes, b + 2, blocks - b - 1);
+        int half = BLOCK / 2;
+        dues[b + 1] = new long[BLOCK]; docs[b + 1] = new int[BLOCK];
+        System.arraycopy(dues[b], half, dues[b + 1], 0, BLOCK - half);
+        System.arraycopy(docs[b], half, docs[b + 1], 0, BLOCK - half);
+        sizes[b + 1] = BLOCK - half; sizes[b] = half;
+        blocks++;
+    }
+
+    private void dropBlock(int b) {
+        System.arraycopy(dues, b + 1, dues, b, blocks - b - 1);
+        System.arraycopy(docs, b + 1, docs, b, blocks - b - 1);
+        System.arraycopy(sizes, b + 1, sizes, b, blocks - b - 1);
+        blocks--;
+        dues[blocks] = null; docs[blocks] = null;
+    }
+}
@@ -0,0 +1,176 @@
+package todo.view;
+
+import todo.model.Priority;
+import todo.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compressed bitmap indexes (see Bitmap) over the facets the query language filters on: one per tag,
+// one per priority level and one for completed tasks (active = live minus completed). Tags are keyed
+// lower-cased, like the case-insensitive tag: term. The bitmaps are kept current from the DocTable
+// deltas: an edit diffs the task against the state it was indexed with and only flips the bits that
+// moved. Facet filters such as "tag:work priority>=high" become bitmap AND/OR
+// in Query, and tagCounts() gives live per-tag counts (the tag sidebar) without touching the list.
+// Due dates go into a sorted DueIndex instead, so due< / due> / due: are range scans and the
+// Due Soon order can be read off it (see FilteredSortedListModel.rebuild).
+public final class FacetIndex implements DocTable.Sink {
+    private final DocTable table;
+    private final Bitmap completed = new Bitmap();
+    private final Bitmap[] byPriority = new Bitmap[Priority.values().length];
+    private final Map<String, Bitmap> byTag = new HashMap<>();
+    private final DueIndex due = new DueIndex();
+    private final Bitmap noDue = new Bitmap();
+    private byte[] priorityOf = new byte[16];      // document -> indexed priority ordinal
+    private String[][] tagsOf = new String[16][];  // document -> indexed tags (sorted)
+    private long[] dueOf = new long[16];           // document -> indexed due (NO_DUE if none)
+    private static final long NO_DUE = Long.MIN_VALUE;
+    private final List<Runnable> tagListeners = new ArrayList<>();
+    private static final String[] NO_TAGS = new String[0];
+
+    FacetIndex(DocTable table) {
+        this.table = table;
+        for (int i = 0; i < byPriority.length; i++) byPriority[i] = new Bitmap();
+        for (int doc = 0; doc < table.capacity(); doc++) {
+            Task t = table.task(doc);
+            if (t != null) indexed(doc, t);
+        }
+        table.addSink(this);
+    }
+
+    // Called (on the EDT) after tag counts change: tags added or removed, or tagged tasks coming and going.
+    public void addTagListener(Runnable r) { tagListeners.add(r); }
+
+    public int count() { return table.size(); }
+    public int completedCount() { return completed.cardinality(); }
+    public int priorityCount(Priority p) { return byPriority[p.ordinal()].cardinality(); }
+    public int tagCount(String tag) { Bitmap b = byTag.get(tag.toLowerCase()); return b == null ? 0 : b.cardinality(); }
+
+    // Tag -> number of tasks carrying it, sorted by tag.
+    public Map<String, Integer> tagCounts() {
+        Map<String, Integer> out = new TreeMap<>();
+        for (Map.Entry<String, Bitmap> e : byTag.entrySet()) if (e.getValue().cardinality() > 0) out.put(e.getKey(), e.getValue().cardinality());
+        return out;
+    }
+
+    // ---- sets for Query (fresh BitSets the caller may modify) ----
+
+    BitSet all() { return table.live(); }
+    BitSet tag(String tag) { Bitmap b = byTag.get(tag.toLowerCase()); return b == null ? new BitSet() : b.toBitSet(); }
+    BitSet priority(Priority p) { return byPriority[p.ordinal()].toBitSet(); }
+    BitSet priorityAtLeast(int rank) {
+        BitSet out = new BitSet();
+        for (Priority p : Priority.values()) if (FilteredSortedListModel.priorityRank(p) >= rank) byPriority[p.ordinal()].orInto(out);
+        return out;
+    }
+    BitSet completed(boolean done) {
+        BitSet c = completed.toBitSet();
+        if (done) return c;
+        BitSet active = table.live();
+        active.andNot(c);
+        return active;
+    }
+    BitSet dueBetween(long from, long to) { return from > to ? new BitSet() : due.range(from, to); }
+    BitSet undated() { return noDue.toBitSet(); }
+    boolean isCompleted(int doc) { return completed.contains(doc); }
+
+    // Documents with a due date in due order (ties by document), from the first due at or after `from`.
+    void walkDue(long from, DueIndex.Visitor v) { due.walk(from, v); }
+
+    // Up to n open documents due at or after `from`, soonest first.
+    int[] nextDue(int n, long from) {
+        int[] out = new int[n];
+        int[] k = {0};
+        due.walk(from, (d, doc) -> {
+            if (!completed.contains(doc)) out[k[0]++] = doc;
+            return k[0] < n;
+        });
+        return k[0] == n ? out : Arrays.copyOf(out, k[0]);
+    }
+
+    // ---- table deltas ----
+
+    @Override public void indexed(int doc, Task t) {
+        ensureCapacity(doc);
+        if (t.completed) completed.add(doc);
+        priorityOf[doc] = (byte) t.priority.ordinal();
+        byPriority[t.priority.ordinal()].add(doc);
+        String[] tags = tags(t);
+        for (String tag : tags) byTag.computeIfAbsent(tag, k -> new Bitmap()).add(doc);
+        tagsOf[doc] = tags;
+        indexDue(doc, t);
+        if (tags.length > 0) tagsChanged();
+    }
+
+    @Override public void unindexed(int doc) {
+        completed.remove(doc);
+        byPriority[priorityOf[doc]].remove(doc);
+        String[] tags = tagsOf[doc];
+        for (String tag : tags) untag(tag, doc);
+        tagsOf[doc] = null;
+        unindexDue(doc);
+        if (tags.length > 0) tagsChanged();
+    }
+
+    @Override public void updated(int doc, Task t) {
+        if (t.completed) completed.add(doc); else completed.remove(doc);
+        int p = t.priority.ordinal();
+        if (priorityOf[doc] != p) {
+            byPriority[priorityOf[doc]].remove(doc);
+            byPriority[p].add(doc);
+            priorityOf[doc] = (byte) p;
+        }
+        long d = t.dueAtMillis == null ? NO_DUE : t.dueAtMillis;
+        if (dueOf[doc] != d) { unindexDue(doc); indexDue(doc, t); }
+        String[] old = tagsOf[doc];
+        if (old.length == 0 && t.tags.isEmpty()) return;
+        String[] tags = tags(t);
+        if (Arrays.equals(old, tags)) return;
+        for (String tag : old) if (Arrays.binarySearch(tags, tag) < 0) untag(tag, doc);
+        for (String tag : tags) byTag.computeIfAbsent(tag, k -> new Bitmap()).add(doc);
+        tagsOf[doc] = tags;
+        tagsChanged();
+    }
+
+    private void indexDue(int doc, Task t) {
+        if (t.dueAtMillis == null) { dueOf[doc] = NO_DUE; noDue.add(doc); }
+        else { dueOf[doc] = t.dueAtMillis; due.add(t.dueAtMillis, doc); }
+    }
+
+    private void unindexDue(int doc) {
+        if (dueOf[doc] == NO_DUE) noDue.remove(doc); else due.remove(dueOf[doc], doc);
+    }
+
+    private void untag(String tag, int doc) {
+        Bitmap b = byTag.get(tag);
+        if (b == null) return;
+        b.remove(doc);
+        if (b.cardinality() == 0) byTag.remove(tag);
+    }
+
+    private void tagsChanged() { for (Runnable r : tagListeners) r.run(); }
+
+    private static String[] tags(Task t) {
+        if (t.tags.isEmpty()) return NO_TAGS;
+        String[] a = new String[t.tags.size()];
+        int n = 0;
+        for (String tag : t.tags) a[n++] = tag.toLowerCase();
+        Arrays.sort(a);
+        int w = 0;
+        for (int i = 0; i < n; i++) if (w == 0 || !a[i].equals(a[w - 1])) a[w++] = a[i];
+        return w == n ? a : Arrays.copyOf(a, w);
+    }
+
+    private void ensureCapacity(int doc) {
+        if (doc < priorityOf.length) return;
+        int n = Math.max(doc + 1, priorityOf.length * 2);
+        priorityOf = Arrays.copyOf(priorityOf, n);
+        tagsOf = Arrays.copyOf(tagsOf, n);
+        dueOf = Arrays.copyOf(dueOf, n);
+    }
+}
@@ -2,84 +2,456 @@ package todo.view;
 
 import todo.model.Priority;
 import todo.model.Task;
+import todo.model.TaskListModel;
+import todo.util.DateUtil;
 
 import javax.swing.*;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+// Filtered, sorted view over the task list. rows holds the source positions that pass the filter,
+// ordered by the sort key with the source position as tie-break (the same order a stable sort of
+// the source gives), and viewOf maps each source position back to its row (-1 = filtered out).
+// Source events are applied as deltas: rows are binary-inserted, removed, or re-positioned only when
+// their key moved, and precise interval events go out, so a single-task edit costs O(log n)
+// comparisons plus array shifts instead of a full re-filter and re-sort. Ranges of BULK or more rows
+// (imports, clears, undo of big deletes) still take a rebuild.
+// submitFilterAndSort() runs the filter and sort of a large list on a background search thread against
+// a snapshot of the list and swaps the result in on the EDT; see Search. Either way, lists past
+// parallelMin are filtered and sorted on the fork/join pool (ParallelRebuild), with identical rows.
 public class FilteredSortedListModel extends AbstractListModel<Task> implements ListDataListener {
+    private static final int BULK = 512;
+    // Lists smaller than this are filtered on the EDT even when submitted (a rebuild is cheaper than the hand-off).
+    private static final int ASYNC_MIN = Integer.getInteger("todo.search.asyncMin", 20_000);
+    // Lists at least this long are filtered and sorted on the fork/join pool (see ParallelRebuild).
+    private volatile int parallelMin = Integer.getInteger("todo.parallel.min", 100_000);
+    private static final ExecutorService SEARCH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "todo-search"); t.setDaemon(true); return t;
+    });
     private final DefaultListModel<Task> source;
-    private java.util.List<Integer> index = new java.util.ArrayList<>();
-    private String filter = "All"; private String query = ""; private String sort = "Added";
+    private final DocTable docs;
+    private final TextIndex text;
+    private final FacetIndex facets;
+    private final SortKeys keys;
+    private final SavedViews views;
+    private final ResultCache cache;
+    private final TaskStats stats;
+    private ResultCache.Key key;                  // filter/query/order currently shown
+    private int[] rows = new int[16];
+    private int size;
+    private int[] viewOf = new int[16];
+    private String filter = "All"; private Query query = Query.compile("");
+    private int[] order = SortKeys.spec("Added"); // sort key columns, most significant first
+    private final SortKeys.Sorter sorter;         // EDT scratch; the search thread has its own
+    private final SortKeys.Sorter searchSorter;
+    private int generation;                       // bumped by every source delta
+    private volatile long latest;                 // newest filter/sort request; older searches give up
 
     public FilteredSortedListModel(DefaultListModel<Task> source) {
-        this.source = source; source.addListDataListener(this); rebuild();
+        this.source = source; this.docs = new DocTable(source); this.text = new TextIndex(docs); this.facets = new FacetIndex(docs);
+        this.keys = new SortKeys(docs); this.sorter = keys.new Sorter(); this.searchSorter = keys.new Sorter();
+        this.views = new SavedViews(docs); this.cache = new ResultCache(docs); this.stats = new TaskStats(docs, facets);
+        this.key = new ResultCache.Key(filter, query, order);
+        views.addListener(() -> { // midnight: a query over "today" now means another day
+            if (!query.relative()) return;
+            query = Query.compile(query.toString());
+            key = new ResultCache.Key(filter, query, order);
+            rebuild(); fireContentsChanged(this, 0, getSize());
+        });
+        views.onMidnight(stats::rollover); // one day-rollover timer for the views and the overdue count
+        source.addListDataListener(this); rebuild();
     }
 
     public void setFilterAndSort(String filter, String query, String sort) {
-        this.filter = filter == null ? "All" : filter;
-        this.query = query == null ? "" : query.trim().toLowerCase();
-        this.sort = sort == null ? "Added" : sort;
-        rebuild(); fireContentsChanged(this, 0, getSize());
-    }
-
-        private void rebuild() {
-            index.clear();
-            for (int i = 0; i < source.size(); i++) {
-                Task t = source.get(i);
-                if ("Active".equals(filter) && t.completed) continue;
-                if ("Completed".equals(filter) && !t.completed) continue;
-                if (!query.isEmpty() && !matchesQuery(t, query)) continue;
-                index.add(i);
+        String f = filter == null ? "All" : filter;
+        Query q = Query.compile(query); // parsed once, then evaluated per task
+        int[] o = SortKeys.spec(sort);
+        ResultCache.Key k = new ResultCache.Key(f, q, o);
+        show(f, q, o, k, cache.get(k));
+    }
+
+    // Make a combination current: from its cache entry if there is one, else by a rebuild. The result
+    // being replaced goes into the cache first.
+    private void show(String f, Query q, int[] o, ResultCache.Key k, ResultCache.Entry cached) {
+        latest++; // supersedes a search still running
+        stash();
+        filter = f; query = q; order = o; key = k;
+        if (cached != null) restore(cached); else rebuild();
+        fireContentsChanged(this, 0, getSize());
+    }
+
+    private void stash() {
+        int[] shown = new int[size];
+        for (int r = 0; r < size; r++) shown[r] = docs.docAt(rows[r]);
+        cache.put(key, shown);
+    }
+
+    // Rows from a cache entry. Documents changed since it was taken are dropped, and those that still
+    // pass are sorted on their own and merged back in.
+    private void restore(ResultCache.Entry e) {
+        if (rows.length < source.size()) rows = new int[source.size()];
+        BitSet dirty = e.version == cache.version() ? new BitSet() : cache.dirtySince(e.version);
+        int n = 0;
+        for (int d : e.docs) if (!dirty.get(d)) rows[n++] = docs.posOf(d);
+        int[] add = new int[dirty.cardinality()];
+        int m = 0;
+        for (int d = dirty.nextSetBit(0); d >= 0; d = dirty.nextSetBit(d + 1)) {
+            if (docs.task(d) != null && accepts(docs.task(d))) add[m++] = docs.posOf(d);
+        }
+        if (m > 0) {
+            java.util.Arrays.sort(add, 0, m);
+            sorter.sort(add, m, order, docs.docArray());
+            int[] merged = new int[Math.max(16, source.size())];
+            for (int i = 0, a = 0, b = 0; i < n + m; i++) merged[i] = b >= m || a < n && compare(rows[a], add[b]) < 0 ? rows[a++] : add[b++];
+            rows = merged;
+        }
+        size = n + m;
+        indexRows();
+    }
+
+    private void rebuild() {
+        int n = 0;
+        int total = source.size();
+        if (rows.length < total) rows = new int[total];
+        BitSet cand = candidates(filter, query, text);
+        if (cand != null && cand.cardinality() < total / 8) {
+            // few candidates (a preset view, a rare tag): visit those, not every position
+            for (int d = cand.nextSetBit(0); d >= 0; d = cand.nextSetBit(d + 1)) if (docs.task(d) != null) rows[n++] = docs.posOf(d);
+            java.util.Arrays.sort(rows, 0, n);
+            int kept = 0;
+            for (int i = 0; i < n; i++) if (accepts(source.get(rows[i]))) rows[kept++] = rows[i];
+            n = kept;
+            sorter.sort(rows, n, order, docs.docArray());
+        } else if (order[0] == SortKeys.DUE) {
+            n = byDue(cand);
+        } else if (parallel(total)) {
+            Task[] tasks = new Task[total];
+            source.copyInto(tasks);
+            n = ParallelRebuild.filter(tasks, docs.docArray(), cand, filter, query, rows, null);
+            ParallelRebuild.sort(keys, rows, n, order, docs.docArray());
+        } else {
+            for (int i = 0; i < total; i++) {
+                if (cand != null && !cand.get(docs.docAt(i))) continue;
+                if (accepts(source.get(i))) rows[n++] = i;
             }
-            java.util.Comparator<Integer> cmp;
-        switch (sort) {
-            case "Title" -> cmp = java.util.Comparator.comparing(i -> source.get(i).title.toLowerCase());
-            case "Due Soon" -> cmp = java.util.Comparator.comparing((Integer i) -> {
-                    Task t = source.get(i); return t.dueAtMillis == null ? Long.MAX_VALUE : t.dueAtMillis; })
-                    .thenComparing(i -> source.get(i).title.toLowerCase());
-            case "Priority" -> cmp = java.util.Comparator.<Integer>comparingInt(i -> -priorityRank(source.get(i).priority))
-                    .thenComparing(i -> source.get(i).title.toLowerCase());
-            default -> cmp = java.util.Comparator.comparingLong(i -> source.get(i).createdAtMillis);
+            sorter.sort(rows, n, order, docs.docArray());
+        }
+        size = n;
+        indexRows();
+    }
+
+    // Due-first orders read off the due index: dated candidates come out in due order and only each
+    // same-day group is sorted by the keys after DUE; the undated ones follow, sorted the same way.
+    private int byDue(BitSet cand) {
+        boolean test = !query.isEmpty() && !query.exact() && views.viewFor(query) == null; // else cand is exact
+        int[] n = {0, 0}; // rows so far, start of the current same-due group
+        long[] day = {Long.MIN_VALUE};
+        facets.walkDue(Long.MIN_VALUE, (due, doc) -> {
+            if (cand != null && !cand.get(doc)) return true;
+            int pos = docs.posOf(doc);
+            if (test && !accepts(source.get(pos))) return true;
+            if (due != day[0]) { sortGroup(n[1], n[0]); n[1] = n[0]; day[0] = due; }
+            rows[n[0]++] = pos;
+            return true;
+        });
+        sortGroup(n[1], n[0]);
+        int start = n[0], end = start;
+        BitSet undated = facets.undated();
+        if (cand != null) undated.and(cand);
+        for (int d = undated.nextSetBit(0); d >= 0; d = undated.nextSetBit(d + 1)) {
+            int pos = docs.posOf(d);
+            if (!test || accepts(source.get(pos))) rows[end++] = pos;
+        }
+        sortGroup(start, end);
+        return end;
+    }
+
+    // rows[lo..hi) (one due date) into position order, then by the rest of the sort order.
+    private void sortGroup(int lo, int hi) {
+        if (hi - lo < 2) return;
+        java.util.Arrays.sort(rows, lo, hi);
+        if (order.length == 1) return;
+        if (hi - lo > 32) { sorter.sortRange(rows, lo, hi, order, docs.docArray()); return; }
+        for (int i = lo + 1; i < hi; i++) {
+            int r = rows[i], j = i - 1;
+            while (j >= lo && compare(rows[j], r) > 0) { rows[j + 1] = rows[j]; j--; }
+            rows[j + 1] = r;
+        }
+    }
+
+    private void indexRows() {
+        if (viewOf.length < source.size()) viewOf = new int[source.size()];
+        java.util.Arrays.fill(viewOf, -1);
+        for (int r = 0; r < size; r++) viewOf[rows[r]] = r;
+    }
+
+    // Narrow with the indexes first (a saved view's members, facet bitmaps, text candidates); accepts()
+    // still has the last word.
+    private BitSet candidates(String filter, Query query, TextIndex text) {
+        SavedViews.View view = views.viewFor(query);
+        BitSet cand = query.isEmpty() ? null : view != null ? views.members(view) : query.candidates(facets, text);
+        if (!"All".equals(filter)) {
+            BitSet f = facets.completed("Completed".equals(filter));
+            if (cand == null) cand = f; else cand.and(f);
         }
-        index.sort(cmp);
-    }
-
-    // Support basic operators: tag:foo, due<YYYY-MM-DD, due>YYYY-MM-DD, plain text matches title/desc
-    private boolean matchesQuery(Task t, String q) {
-        String[] parts = q.split("\\s+");
-        for (String part : parts) {
-            if (part.startsWith("tag:")) {
-                String tag = part.substring(4);
-                if (!t.tags.contains(tag)) return false;
-            } else if (part.startsWith("priority:")) {
-                String val = part.substring(9).toUpperCase();
-                try { if (t.priority != todo.model.Priority.valueOf(val)) return false; } catch (Exception e) { return false; }
-            } else if (part.startsWith("priority>=")) {
-                String val = part.substring(10).toUpperCase();
-                try {
-                    int need = priorityRank(todo.model.Priority.valueOf(val));
-                    if (priorityRank(t.priority) < need) return false;
-                } catch (Exception e) { return false; }
-            } else if (part.startsWith("due<")) {
-                Long d = todo.util.DateUtil.parseDue(part.substring(4)); if (d==null) return false;
-                if (t.dueAtMillis == null || !(t.dueAtMillis < d)) return false;
-            } else if (part.startsWith("due>")) {
-                Long d = todo.util.DateUtil.parseDue(part.substring(4)); if (d==null) return false;
-                if (t.dueAtMillis == null || !(t.dueAtMillis > d)) return false;
-            } else {
-                String needle = part.toLowerCase();
-                String hay = (t.title+"\n"+(t.note==null?"":t.note)).toLowerCase();
-                if (!hay.contains(needle)) return false;
+        return cand;
+    }
+
+    private boolean accepts(Task t) { return accepts(t, filter, query); }
+
+    static boolean accepts(Task t, String filter, Query query) {
+        if ("Active".equals(filter) && t.completed) return false;
+        if ("Completed".equals(filter) && !t.completed) return false;
+        return query.isEmpty() || query.matches(t);
+    }
+
+    // Size from which rebuilds run on the fork/join pool (rows are identical either way, see
+    // ParallelRebuild). Defaults to -Dtodo.parallel.min (100000).
+    public void setParallelThreshold(int rows) { parallelMin = rows; }
+
+    private boolean parallel(int rows) { return rows >= parallelMin && ParallelRebuild.available(); }
+
+    // Same result as setFilterAndSort, but a large list is filtered and sorted on the search thread:
+    // typing stays responsive, a newer call cancels a search still running, and the new rows replace the
+    // old ones in one step (one contentsChanged). Until then the view keeps the previous filter, still
+    // following edits. Call on the EDT.
+    public void submitFilterAndSort(String filter, String query, String sort) {
+        String f = filter == null ? "All" : filter;
+        Query q = Query.compile(query);
+        int[] o = SortKeys.spec(sort);
+        ResultCache.Key k = new ResultCache.Key(f, q, o);
+        ResultCache.Entry cached = cache.get(k);
+        if (cached != null || source.size() < ASYNC_MIN) { show(f, q, o, k, cached); return; }
+        SEARCH.execute(new Search(filter, query, sort, false));
+    }
+
+    // One background filter+sort over a snapshot of the list taken on the EDT (tasks and their document
+    // numbers; the facet candidates are cheap bitmap ops and computed up front). Sort keys and task fields
+    // are read live, so the result is only published if no source delta arrived meanwhile (generation);
+    // otherwise it is retried once on a fresh snapshot and then done on the EDT. The first text search of
+    // a large list builds the trigram postings here as well, rather than on the EDT.
+    private final class Search implements Runnable {
+        final long ticket = ++latest;
+        final int gen = generation;
+        final String filterName, queryText, sortName;
+        final boolean retry;
+        final Query q;
+        final int[] spec;
+        final Task[] tasks = new Task[source.size()];
+        final int[] docOf = docs.snapshot();
+        final BitSet cand;
+        final boolean buildText;
+        TextIndex.Build textBuild;
+        int[] found;
+        int n;
+
+        Search(String filter, String query, String sort, boolean retry) {
+            filterName = filter == null ? "All" : filter; queryText = query; sortName = sort; this.retry = retry;
+            q = Query.compile(query);
+            spec = SortKeys.spec(sort);
+            source.copyInto(tasks);
+            buildText = !text.isBuilt() && !q.isEmpty();
+            cand = candidates(filterName, q, text.isBuilt() ? text : null);
+        }
+
+        boolean cancelled() { return ticket != latest; }
+
+        @Override public void run() {
+            if (cancelled()) return;
+            try {
+                if (buildText) textBuild = new TextIndex.Build(tasks, docOf); // kept even if this search is superseded
+                if (!cancelled()) {
+                    int[] rows = new int[Math.max(16, tasks.length)];
+                    boolean parallel = parallel(tasks.length);
+                    if (parallel) n = ParallelRebuild.filter(tasks, docOf, cand, filterName, q, rows, this::cancelled);
+                    else for (int i = 0; i < tasks.length; i++) {
+                        if ((i & 0xfff) == 0 && cancelled()) break;
+                        if (cand != null && !cand.get(docOf[i])) continue;
+                        if (accepts(tasks[i], filterName, q)) rows[n++] = i;
+                    }
+                    if (!cancelled()) {
+                        if (parallel) ParallelRebuild.sort(keys, rows, n, spec, docOf); else searchSorter.sort(rows, n, spec, docOf);
+                        found = rows;
+                    }
+                }
+            } catch (RuntimeException e) {
+                found = null; // a concurrent edit moved something under us; publish() retries
             }
+            if (textBuild != null || !cancelled()) SwingUtilities.invokeLater(this::publish);
         }
-        return true;
+
+        private void publish() {
+            boolean current = gen == generation;
+            if (current && textBuild != null) text.install(textBuild);
+            if (cancelled()) return;
+            if (!current || found == null) {
+                if (retry) setFilterAndSort(filterName, queryText, sortName); else SEARCH.execute(new Search(filterName, queryText, sortName, true));
+                return;
+            }
+            stash();
+            filter = filterName; query = q; order = spec; key = new ResultCache.Key(filterName, q, spec);
+            rows = found; size = n;
+            indexRows();
+            fireContentsChanged(FilteredSortedListModel.this, 0, getSize());
+        }
+    }
+
+    // Order of two source positions under the current sort (precomputed keys); ties fall back to source order.
+    private int compare(int a, int b) {
+        int c = keys.compare(order, docs.docAt(a), docs.docAt(b));
+        return c != 0 ? c : Integer.compare(a, b);
     }
 
-    private int priorityRank(Priority p) { return switch (p) { case URGENT -> 3; case HIGH -> 2; case NORMAL -> 1; case LOW -> 0; }; }
-    @Override public int getSize() { return index.size(); }
-    @Override public Task getElementAt(int i) { return source.get(index.get(i)); }
-    @Override public void intervalAdded(ListDataEvent e) { rebuild(); fireContentsChanged(this, 0, getSize()); }
-    @Override public void intervalRemoved(ListDataEvent e) { rebuild(); fireContentsChanged(this, 0, getSize()); }
-    @Override public void contentsChanged(ListDataEvent e) { rebuild(); fireContentsChanged(this, 0, getSize()); }
+    // First row whose source position sorts after pos.
+    private int insertionPoint(int pos) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(rows[mid], pos) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private boolean inOrder(int r) {
+        return (r == 0 || compare(rows[r - 1], rows[r]) < 0) && (r == size - 1 || compare(rows[r], rows[r + 1]) < 0);
+    }
+
+    private int insertRow(int pos) {
+        int r = putRow(pos);
+        for (int i = r; i < size; i++) viewOf[rows[i]] = i;
+        return r;
+    }
+
+    // insertRow() that leaves viewOf to the caller.
+    private int putRow(int pos) {
+        int r = insertionPoint(pos);
+        if (size == rows.length) rows = java.util.Arrays.copyOf(rows, size * 2);
+        System.arraycopy(rows, r, rows, r + 1, size - r);
+        rows[r] = pos;
+        size++;
+        return r;
+    }
+
+    private void removeRow(int r) {
+        viewOf[rows[r]] = -1;
+        System.arraycopy(rows, r + 1, rows, r, size - r - 1);
+        size--;
+        for (int i = r; i < size; i++) viewOf[rows[i]] = i;
+    }
+
+    static int priorityRank(Priority p) { return switch (p) { case URGENT -> 3; case HIGH -> 2; case NORMAL -> 1; case LOW -> 0; }; }
+    @Override public int getSize() { return size; }
+    @Override public Task getElementAt(int i) { return source.get(rows[i]); }
+
+    public TextIndex textIndex() { return text; }
+
+    // Up to n open tasks due today or later, soonest first (a due index range walk, no sort).
+    public List<Task> nextDue(int n) {
+        List<Task> out = new ArrayList<>();
+        for (int doc : facets.nextDue(n, DateUtil.startOfDayMillis(new Date()))) out.add(docs.task(doc));
+        return out;
+    }
+    public FacetIndex facetIndex() { return facets; }
+    public SavedViews views() { return views; }
+    public ResultCache resultCache() { return cache; }
+    public TaskStats stats() { return stats; }
+
+    @Override public void intervalAdded(ListDataEvent e) {
+        generation++;
+        docs.added(e.getIndex0(), e.getIndex1());
+        int from = e.getIndex0(), count = e.getIndex1() - from + 1;
+        if (count >= BULK) { rebuild(); fireContentsChanged(this, 0, getSize()); return; }
+        // make room in viewOf and shift the source positions behind the insert
+        if (viewOf.length < source.size()) viewOf = java.util.Arrays.copyOf(viewOf, Math.max(source.size(), viewOf.length * 2));
+        System.arraycopy(viewOf, from, viewOf, from + count, source.size() - count - from);
+        java.util.Arrays.fill(viewOf, from, from + count, -1);
+        for (int r = 0; r < size; r++) if (rows[r] >= from) rows[r] += count;
+        for (int pos = from; pos < from + count; pos++) {
+            if (!accepts(source.get(pos))) continue;
+            int r = insertRow(pos);
+            fireIntervalAdded(this, r, r);
+        }
+    }
+
+    @Override public void intervalRemoved(ListDataEvent e) {
+        generation++;
+        docs.removed(e.getIndex0(), e.getIndex1());
+        int from = e.getIndex0(), to = e.getIndex1(), count = to - from + 1;
+        if (count >= BULK) { rebuild(); fireContentsChanged(this, 0, getSize()); return; }
+        int[] removed = new int[count];
+        int n = 0;
+        for (int pos = to; pos >= from; pos--) {
+            int r = viewOf[pos];
+            if (r < 0) continue;
+            removeRow(r);
+            removed[n++] = r;
+        }
+        int oldSize = source.size() + count;
+        System.arraycopy(viewOf, to + 1, viewOf, from, oldSize - to - 1);
+        for (int r = 0; r < size; r++) if (rows[r] > to) rows[r] -= count;
+        // fire once the rows point at the shifted source again, in the order they were removed
+        for (int i = 0; i < n; i++) fireIntervalRemoved(this, removed[i], removed[i]);
+    }
+
+    @Override public void contentsChanged(ListDataEvent e) {
+        if (e instanceof TaskListModel.BatchEvent b) { batch(b); return; }
+        generation++;
+        docs.changed(e.getIndex0(), e.getIndex1());
+        int from = e.getIndex0(), to = e.getIndex1();
+        if (from < 0 || to < 0 || to - from + 1 >= BULK) { rebuild(); fireContentsChanged(this, 0, getSize()); return; }
+        for (int pos = from; pos <= to && pos < source.size(); pos++) {
+            int r = viewOf[pos];
+            boolean keep = accepts(source.get(pos));
+            if (r >= 0 && keep && inOrder(r)) { fireContentsChanged(this, r, r); continue; }
+            if (r >= 0) { removeRow(r); fireIntervalRemoved(this, r, r); }
+            if (keep) { int n = insertRow(pos); fireIntervalAdded(this, n, n); }
+        }
+    }
+
+    // A committed TaskListModel batch: one pass over the table and the rows, one event out. Edited rows are
+    // all taken out before any is put back, so each insert searches rows that are still in order.
+    private void batch(TaskListModel.BatchEvent b) {
+        generation++;
+        int[] gone = b.removed(), edited = b.changed();
+        int addedFrom = b.addedFrom(), addedTo = addedFrom + b.addedCount();
+        docs.batch(gone, addedFrom, b.addedCount(), edited);
+        if (b.size() >= BULK) { rebuild(); fireContentsChanged(this, 0, getSize()); return; }
+        if (gone.length > 0) {
+            int w = 0;
+            for (int r = 0; r < size; r++) {
+                int k = java.util.Arrays.binarySearch(gone, rows[r]);
+                if (k < 0) rows[w++] = rows[r] + k + 1; // minus the removed positions below it
+            }
+            size = w;
+            indexRows();
+        } else { // no row moved: only the appended positions need entries
+            if (viewOf.length < source.size()) viewOf = java.util.Arrays.copyOf(viewOf, Math.max(source.size(), viewOf.length * 2));
+            java.util.Arrays.fill(viewOf, addedFrom, addedTo, -1);
+        }
+        // Take the edited rows out (highest first, so the lower ones stay put) and put the accepted ones
+        // back; viewOf is then refreshed only over the rows that moved: up to the last one touched when
+        // the count is unchanged (a reorder), else to the end.
+        int[] cut = new int[edited.length];
+        int c = 0, before = size, lo = size, hi = -1, puts = 0;
+        for (int pos : edited) if (viewOf[pos] >= 0) cut[c++] = viewOf[pos];
+        java.util.Arrays.sort(cut, 0, c);
+        for (int i = c - 1; i >= 0; i--) {
+            int r = cut[i];
+            viewOf[rows[r]] = -1;
+            System.arraycopy(rows, r + 1, rows, r, size - r - 1);
+            size--;
+        }
+        if (c > 0) { lo = cut[0]; hi = cut[c - 1]; }
+        for (int pos = addedFrom; pos < addedTo; pos++) if (accepts(source.get(pos))) { int r = putRow(pos); lo = Math.min(lo, r); hi = Math.max(hi, r); puts++; }
+        for (int pos : edited) if (accepts(source.get(pos))) { int r = putRow(pos); lo = Math.min(lo, r); hi = Math.max(hi, r); puts++; }
+        int to = size == before ? Math.min(size - 1, hi + puts) : size - 1;
+        for (int r = lo; r <= to; r++) viewOf[rows[r]] = r;
+        fireContentsChanged(this, 0, getSize());
+    }
 }
@@ -0,0 +1,94 @@
+package todo.view;
+
+import todo.model.Task;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+// Fork/join versions of the two halves of a rebuild, for lists past the model's parallel threshold.
+// filter() tests fixed chunks of source positions in parallel, each chunk writing its hits at the
+// start of its own slice of rows, then packs the slices down in chunk order, so rows comes out in
+// ascending source order exactly as the sequential loop writes it. sort() radix-sorts contiguous slices
+// on the pool (a SortKeys.Sorter per worker thread) and merges them under the same total order the
+// sequential sort produces (keys, then source position), so both paths give identical rows.
+final class ParallelRebuild {
+    private static final int FILTER_GRAIN = 16_384, SORT_GRAIN = 65_536;
+
+    private ParallelRebuild() {}
+
+    static boolean available() { return ForkJoinPool.getCommonPoolParallelism() > 1; }
+
+    // Passing positions of tasks (ascending) into rows[0..); returns how many. Chunks not yet started
+    // when cancelled (checked per chunk; null = never) are skipped, and the result is then partial.
+    static int filter(Task[] tasks, int[] docOf, BitSet cand, String filter, Query query, int[] rows, BooleanSupplier cancelled) {
+        int chunks = (tasks.length + FILTER_GRAIN - 1) / FILTER_GRAIN;
+        int[] counts = new int[chunks];
+        ForkJoinPool.commonPool().invoke(new FilterChunks(tasks, docOf, cand, filter, query, rows, counts, 0, chunks, cancelled));
+        int n = 0;
+        for (int c = 0; c < chunks; c++) {
+            System.arraycopy(rows, c * FILTER_GRAIN, rows, n, counts[c]);
+            n += counts[c];
+        }
+        return n;
+    }
+
+    static void sort(SortKeys keys, int[] rows, int n, int[] spec, int[] docOf) {
+        if (n < 2) return;
+        ForkJoinPool.commonPool().invoke(new SortRange(keys, rows, new int[n], 0, n, spec, docOf));
+    }
+
+    private static final class FilterChunks extends RecursiveAction {
+        final Task[] tasks; final int[] docOf; final BitSet cand; final String filter; final Query query;
+        final int[] rows, counts;
+        final int from, to; // chunk range
+        final BooleanSupplier cancelled;
+
+        FilterChunks(Task[] tasks, int[] docOf, BitSet cand, String filter, Query query, int[] rows, int[] counts, int from, int to, BooleanSupplier cancelled) {
+            this.tasks = tasks; this.docOf = docOf; this.cand = cand; this.filter = filter; this.query = query;
+            this.rows = rows; this.counts = counts; this.from = from; this.to = to; this.cancelled = cancelled;
+        }
+
+        @Override protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FilterChunks(tasks, docOf, cand, filter, query, rows, counts, from, mid, cancelled),
+                          new FilterChunks(tasks, docOf, cand, filter, query, rows, counts, mid, to, cancelled));
+                return;
+            }
+            if (cancelled != null && cancelled.getAsBoolean()) return;
+            int lo = from * FILTER_GRAIN, hi = Math.min(tasks.length, lo + FILTER_GRAIN), n = lo;
+            for (int i = lo; i < hi; i++) {
+                if (cand != null && !cand.get(docOf[i])) continue;
+                if (FilteredSortedListModel.accepts(tasks[i], filter, query)) rows[n++] = i;
+            }
+            counts[from] = n - lo;
+        }
+    }
+
+    private static final class SortRange extends RecursiveAction {
+        final SortKeys keys; final int[] rows, scratch; final int lo, hi; final int[] spec, docOf;
+
+        SortRange(SortKeys keys, int[] rows, int[] scratch, int lo, int hi, int[] spec, int[] docOf) {
+            this.keys = keys; this.rows = rows; this.scratch = scratch; this.lo = lo; this.hi = hi; this.spec = spec; this.docOf = docOf;
+        }
+
+        @Override protected void compute() {
+            if (hi - lo <= SORT_GRAIN) { keys.localSorter().sortRange(rows, lo, hi, spec, docOf); return; }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SortRange(keys, rows, scratch, lo, mid, spec, docOf), new SortRange(keys, rows, scratch, mid, hi, spec, docOf));
+            if (before(rows[mid - 1], rows[mid])) return;
+            System.arraycopy(rows, lo, scratch, lo, hi - lo);
+            for (int i = lo, a = lo, b = mid; i < hi; i++) {
+                if (b >= hi || a < mid && before(scratch[a], scratch[b])) rows[i] = scratch[a++];
+                else rows[i] = scratch[b++];
+            }
+        }
+
+        private boolean before(int x, int y) {
+            int c = keys.compare(spec, docOf[x], docOf[y]);
+            return c < 0 || c == 0 && x < y;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package todo.view;
+
+import todo.model.Priority;
+import todo.model.Task;
+import todo.util.DateUtil;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Search query compiled once into a predicate tree. Grammar (terms, tags included, are case-insensitive;
+// keywords are upper case so "or" and "not" stay searchable words):
+//   query  := and (("OR" | "|") and)*
+//   and    := unary+                         terms next to each other must all match
+//   unary  := ("-" | "NOT") unary | "(" query ")" | "quoted phrase" | term
+//   term   := tag:x | priority:x | priority>=x | due<D | due>D | due:D | is:done | is:open | word
+//   D      := YYYY-MM-DD | today
+// Operands (priorities, dates, lower-cased words) are resolved at compile time; an operand that does
+// not resolve matches nothing, as before. "today" resolves to the current day, so such a query is
+// relative() and has to be compiled again after midnight. Within an AND the cheap field tests run before text search,
+// and text is matched in place (regionMatches), so testing a task allocates nothing. Before testing,
+// the tree is also evaluated over the indexes: facet terms (tag, priority, due, is:) are exact FacetIndex
+// bitmaps and plain terms are TextIndex candidates, combined with AND/OR/NOT, so only the resulting
+// candidate tasks have to be tested.
+public final class Query {
+    private interface Node {
+        boolean test(Task t);
+        int cost();
+        // Documents that can match, or null if this node cannot narrow the search.
+        default BitSet candidates(FacetIndex fx, TextIndex tx) { return null; }
+        // True if candidates() is exactly the matching set (so it may be negated).
+        default boolean exact() { return false; }
+    }
+
+    private static final int FIELD = 1, TEXT = 10;
+    private static final Node ALL = leaf(FIELD, t -> true);
+    private static final Node NONE = facet(t -> false, fx -> new BitSet());
+
+    private static final Pattern RELATIVE = Pattern.compile("(?i)due[<>:]today");
+
+    private final String source;
+    private final Node root;
+
+    private Query(String source, Node root) { this.source = source; this.root = root; }
+
+    public static Query compile(String query) {
+        String q = query == null ? "" : query.trim();
+        if (q.isEmpty()) return new Query("", ALL);
+        Parser p = new Parser(q);
+        List<Node> parts = new ArrayList<>();
+        while (!p.done()) {
+            Node n = p.or();
+            if (n != null) parts.add(n);
+            p.skipStrayClose();
+        }
+        return new Query(q, parts.isEmpty() ? ALL : allOf(parts));
+    }
+
+    public boolean isEmpty() { return root == ALL; }
+    // True if the query refers to today's date.
+    public boolean relative() { return RELATIVE.matcher(source).find(); }
+    public boolean matches(Task t) { return root.test(t); }
+    // True if candidates() is exactly the matching set (facet terms only), so matches() need not run.
+    boolean exact() { return root.exact(); }
+    // Candidate documents from the indexes, or null when the whole list has to be tested.
+    BitSet candidates(FacetIndex fx, TextIndex tx) { return root.candidates(fx, tx); }
+    @Override public String toString() { return source; }
+
+    // ---- nodes ----
+
+    private interface Test { boolean test(Task t); }
+
+    private interface Lookup { BitSet get(FacetIndex fx); }
+
+    private static Node leaf(int cost, Test test) {
+        return new Node() {
+            @Override public boolean test(Task t) { return test.test(t); }
+            @Override public int cost() { return cost; }
+        };
+    }
+
+    // A field test that is answered exactly by a facet bitmap.
+    private static Node facet(Test test, Lookup lookup) {
+        return new Node() {
+            @Override public boolean test(Task t) { return test.test(t); }
+            @Override public int cost() { return FIELD; }
+            @Override public BitSet candidates(FacetIndex fx, TextIndex tx) { return lookup.get(fx); }
+            @Override public boolean exact() { return true; }
+        };
+    }
+
+    private static Node allOf(List<Node> parts) {
+        if (parts.size() == 1) return parts.get(0);
+        parts.sort(Comparator.comparingInt(Node::cost));
+        Node[] p = parts.toArray(new Node[0]);
+        int cost = maxCost(p);
+        return new Node() {
+            @Override public boolean test(Task t) { for (Node n : p) if (!n.test(t)) return false; return true; }
+            @Override public int cost() { return cost; }
+            @Override public BitSet candidates(FacetIndex fx, TextIndex tx) {
+                BitSet acc = null;
+                for (Node n : p) {
+                    BitSet c = n.candidates(fx, tx);
+                    if (c == null) continue;
+                    if (acc == null) acc = c; else acc.and(c);
+                    if (acc.isEmpty()) break;
+                }
+                return acc;
+            }
+            @Override public boolean exact() { for (Node n : p) if (!n.exact()) return false; return true; }
+        };
+    }
+
+    private static Node anyOf(List<Node> parts) {
+        if (parts.size() == 1) return parts.get(0);
+        parts.sort(Comparator.comparingInt(Node::cost));
+        Node[] p = parts.toArray(new Node[0]);
+        int cost = maxCost(p);
+        return new Node() {
+            @Override public boolean test(Task t) { for (Node n : p) if (n.test(t)) return true; return false; }
+            @Override public int cost() { return cost; }
+            @Override public BitSet candidates(FacetIndex fx, TextIndex tx) {
+                BitSet acc = new BitSet();
+                for (Node n : p) {
+                    BitSet c = n.candidates(fx, tx);
+                    if (c == null) return null;
+                    acc.or(c);
+                }
+                return acc;
+            }
+            @Override public boolean exact() { for (Node n : p) if (!n.exact()) return false; return true; }
+        };
+    }
+
+    private static int maxCost(Node[] nodes) {
+        int cost = 0;
+        for (Node n : nodes) cost = Math.max(cost, n.cost());
+        return cost;
+    }
+
+    private static Node not(Node n) {
+        return new Node() {
+            @Override public boolean test(Task t) { return !n.test(t); }
+            @Override public int cost() { return n.cost(); }
+            @Override public BitSet candidates(FacetIndex fx, TextIndex tx) {
+                if (!n.exact()) return null; // the complement of a superset says nothing
+                BitSet c = n.candidates(fx, tx), all = fx.all();
+                all.andNot(c);
+                return all;
+            }
+            @Override public boolean exact() { return n.exact(); }
+        };
+    }
+
+    private static Node term(String word) {
+        String w = word.toLowerCase();
+        if (w.startsWith("tag:")) { String tag = w.substring(4); return facet(t -> hasTag(t, tag), fx -> fx.tag(tag)); }
+        if (w.startsWith("priority:")) {
+            Priority p = priority(w.substring(9));
+            return p == null ? NONE : facet(t -> t.priority == p, fx -> fx.priority(p));
+        }
+        if (w.startsWith("priority>=")) {
+            Priority p = priority(w.substring(10));
+            if (p == null) return NONE;
+            int need = FilteredSortedListModel.priorityRank(p);
+            return facet(t -> FilteredSortedListModel.priorityRank(t.priority) >= need, fx -> fx.priorityAtLeast(need));
+        }
+        if (w.startsWith("due<")) {
+            Long d = date(w.substring(4));
+            if (d == null) return NONE;
+            long due = d;
+            return facet(t -> t.dueAtMillis != null && t.dueAtMillis < due, fx -> fx.dueBetween(Long.MIN_VALUE, due - 1));
+        }
+        if (w.startsWith("due>")) {
+            Long d = date(w.substring(4));
+            if (d == null) return NONE;
+            long due = d;
+            return facet(t -> t.dueAtMillis != null && t.dueAtMillis > due, fx -> fx.dueBetween(due + 1, Long.MAX_VALUE));
+        }
+        if (w.startsWith("due:")) {
+            Long d = date(w.substring(4));
+            if (d == null) return NONE;
+            long due = d;
+            return facet(t -> t.dueAtMillis != null && t.dueAtMillis == due, fx -> fx.dueBetween(due, due));
+        }
+        if (w.equals("is:done")) return facet(t -> t.completed, fx -> fx.completed(true));
+        if (w.equals("is:open")) return facet(t -> !t.completed, fx -> fx.completed(false));
+        return text(w);
+    }
+
+    // Case-insensitive substring of the title or the note (out-of-line notes load through the cache).
+    private static Node text(String needle) {
+        return new Node() {
+            @Override public boolean test(Task t) { return contains(t.title, needle) || (t.hasNote() && contains(t.note(), needle)); }
+            @Override public int cost() { return TEXT; }
+            @Override public BitSet candidates(FacetIndex fx, TextIndex tx) { return tx == null ? null : tx.lookup(needle); }
+        };
+    }
+
+    static boolean contains(String hay, String needle) {
+        if (hay == null) return false;
+        int n = needle.length(), last = hay.length() - n;
+        if (n == 0) return true;
+        char first = needle.charAt(0), firstUpper = Character.toUpperCase(first);
+        for (int i = 0; i <= last; i++) {
+            char c = hay.charAt(i);
+            if ((c == first || c == firstUpper || Character.toLowerCase(c) == first) && hay.regionMatches(true, i, needle, 0, n)) return true;
+        }
+        return false;
+    }
+
+    // Tags compare case-insensitively (tag is lower case already).
+    private static boolean hasTag(Task t, String tag) {
+        if (t.tags.contains(tag)) return true;
+        for (String x : t.tags) if (x.equalsIgnoreCase(tag)) return true;
+        return false;
+    }
+
+    private static Long date(String s) { return s.equals("today") ? Long.valueOf(DateUtil.startOfDayMillis(new Date())) : DateUtil.parseDue(s); }
+
+    private static Priority priority(String name) {
+        for (Priority p : Priority.values()) if (p.name().equalsIgnoreCase(name)) return p;
+        return null;
+    }
+
+    // ---- parser ----
+
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Boolean> quoted = new ArrayList<>();
+        private int pos;
+
+        Parser(String q) {
+            int i = 0, n = q.length();
+            while (i < n) {
+                char c = q.charAt(i);
+                if (Character.isWhitespace(c)) { i++; continue; }
+                if (c == '(' || c == ')' || c == '|') { add(String.valueOf(c), false); i++; continue; }
+                if (c == '"') {
+                    int end = q.indexOf('"', i + 1);
+                    if (end < 0) end = n;
+                    add(q.substring(i + 1, end), true);
+                    i = end + 1;
+                    continue;
+                }
+                if (c == '-' && i + 1 < n && !Character.isWhitespace(q.charAt(i + 1))) { add("-", false); i++; continue; }
+                int start = i;
+                while (i < n && !Character.isWhitespace(q.charAt(i)) && "()|\"".indexOf(q.charAt(i)) < 0) i++;
+                add(q.substring(start, i), false);
+            }
+        }
+
+        private void add(String tok, boolean isQuoted) { tokens.add(tok); quoted.add(isQuoted); }
+
+        boolean done() { return pos >= tokens.size(); }
+        void skipStrayClose() { if (at(")")) pos++; }
+
+        private boolean at(String tok) { return pos < tokens.size() && !quoted.get(pos) && tokens.get(pos).equals(tok); }
+
+        Node or() {
+            List<Node> parts = new ArrayList<>();
+            while (true) {
+                Node a = and();
+                if (a != null) parts.add(a);
+                if (at("OR") || at("|")) { pos++; continue; }
+                break;
+            }
+            return parts.isEmpty() ? null : anyOf(parts);
+        }
+
+        private Node and() {
+            List<Node> parts = new ArrayList<>();
+            while (pos < tokens.size() && !at("OR") && !at("|") && !at(")")) {
+                Node u = unary();
+                if (u != null) parts.add(u);
+            }
+            return parts.isEmpty() ? null : allOf(parts);
+        }
+
+        private Node unary() {
+            if (at("-") || at("NOT")) {
+                pos++;
+                if (pos >= tokens.size()) return null;
+                Node n = unary();
+                return n == null ? null : not(n);
+            }
+            if (at("(")) {
+                pos++;
+                Node n = or();
+                if (at(")")) pos++;
+                return n;
+            }
+            boolean isQuoted = quoted.get(pos);
+            String tok = tokens.get(pos++);
+            if (isQuoted) return tok.isBlank() ? null : text(tok.toLowerCase());
+            return term(tok);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package todo.view;
+
+import todo.model.Task;
+import todo.util.DateUtil;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Results of earlier filter/query/sort combinations, so switching back to one does not recompute it.
+// An entry holds the result as documents in view order (documents survive inserts and removals above
+// them, positions do not) and the cache version it was taken at. Every table delta bumps the version
+// and is logged (last LOG documents): an entry taken at the current version is a hit as is; an older
+// one whose changes are still in the log is patched, by dropping the changed documents and
+// re-inserting the ones that still match; anything older is a miss. Entries are evicted least
+// recently used first once they hold more than -Dtodo.view.cacheBytes (default 16 MB).
+public final class ResultCache implements DocTable.Sink {
+    private static final int LOG = 4096;
+    private static final long MAX_BYTES = Long.getLong("todo.view.cacheBytes", 16L << 20);
+
+    static final class Key {
+        final String filter, query;
+        final int[] order;
+
+        // Queries over "today" are keyed by the day as well, so yesterday's "due:today" never comes back.
+        Key(String filter, Query query, int[] order) {
+            this.filter = filter;
+            this.query = query.relative() ? query + "@" + DateUtil.startOfDayMillis(new Date()) : query.toString();
+            this.order = order;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof Key k && k.filter.equals(filter) && k.query.equals(query) && Arrays.equals(k.order, order);
+        }
+        @Override public int hashCode() { return (filter.hashCode() * 31 + query.hashCode()) * 31 + Arrays.hashCode(order); }
+    }
+
+    static final class Entry {
+        final int[] docs; // view order
+        final long version;
+        Entry(int[] docs, long version) { this.docs = docs; this.version = version; }
+        long bytes() { return 64 + 4L * docs.length; }
+    }
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long version;
+    private final int[] logDocs = new int[LOG]; // ring: logDocs[v % LOG] = document changed at version v
+    private int logCount;
+    private long hits, patches, misses, evictions;
+
+    ResultCache(DocTable table) { table.addSink(this); }
+
+    long version() { return version; }
+
+    void put(Key key, int[] docs) {
+        Entry e = new Entry(docs, version);
+        if (e.bytes() > MAX_BYTES) return;
+        Entry old = entries.put(key, e);
+        if (old != null) bytes -= old.bytes();
+        bytes += e.bytes();
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); bytes > MAX_BYTES && it.hasNext(); ) {
+            Entry lru = it.next().getValue();
+            if (lru == e) continue;
+            bytes -= lru.bytes();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    // The entry for key if it is current or can be patched (see dirtySince), else null (a miss).
+    Entry get(Key key) {
+        Entry e = entries.get(key);
+        if (e == null || version - e.version > logCount) { misses++; return null; }
+        if (e.version == version) hits++; else patches++;
+        return e;
+    }
+
+    // Documents changed (added, edited or removed) after version v; v must still be covered by the log.
+    BitSet dirtySince(long v) {
+        BitSet dirty = new BitSet();
+        int changes = (int) (version - v);
+        for (int i = 0; i < changes; i++) dirty.set(logDocs[(int) ((version - i) % LOG)]);
+        return dirty;
+    }
+
+    public long hits() { return hits; }
+    public long patches() { return patches; }
+    public long misses() { return misses; }
+    public long evictions() { return evictions; }
+    public int size() { return entries.size(); }
+    public long bytes() { return bytes; }
+
+    @Override public String toString() {
+        return "result cache: " + entries.size() + " entries, " + (bytes >> 10) + " KB; " + hits + " hits, " + patches + " patched, "
+                + misses + " misses, " + evictions + " evicted";
+    }
+
+    // ---- table deltas ----
+
+    @Override public void indexed(int doc, Task t) { log(doc); }
+    @Override public void unindexed(int doc) { log(doc); }
+    @Override public void updated(int doc, Task t) { log(doc); }
+
+    private void log(int doc) {
+        version++;
+        logDocs[(int) (version % LOG)] = doc;
+        if (logCount < LOG) logCount++;
+    }
+}
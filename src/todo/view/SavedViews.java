@@ -0,0 +1,122 @@
+package todo.view;
+
+import todo.model.Task;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Materialized views: named queries (the View menu presets and the user's saved searches) whose
+// matching documents are kept in a Bitmap and updated from the DocTable deltas, one query test per
+// view per changed task. When the view's query is the search in effect, FilteredSortedListModel takes
+// the bitmap as its exact candidate set, so switching to a preset only sorts its members, and count()
+// gives the menu badges without a scan. Views over "today" are recompiled and rescanned by a single
+// timer at each local midnight, the app's one day-rollover clock (TaskStats hooks into it too).
+public final class SavedViews implements DocTable.Sink {
+    public static final class View {
+        private final String name, query;
+        private Query compiled;
+        private final Bitmap members = new Bitmap();
+
+        private View(String name, String query) { this.name = name; this.query = query; this.compiled = Query.compile(query); }
+
+        public String name() { return name; }
+        public String query() { return query; }
+        public int count() { return members.cardinality(); }
+    }
+
+    private final DocTable table;
+    private final Map<String, View> views = new LinkedHashMap<>();
+    private final List<Runnable> listeners = new ArrayList<>();
+    private final List<Runnable> midnightHooks = new ArrayList<>();
+    private Timer midnight;
+
+    SavedViews(DocTable table) { this.table = table; table.addSink(this); }
+
+    // Add or replace a view, filling it with one pass over the list.
+    public View define(String name, String query) {
+        View v = new View(name, query);
+        fill(v);
+        views.put(name, v);
+        if (v.compiled.relative()) scheduleMidnight();
+        changed();
+        return v;
+    }
+
+    public void remove(String name) { if (views.remove(name) != null) changed(); }
+
+    public List<View> views() { return new ArrayList<>(views.values()); }
+
+    public View get(String name) { return views.get(name); }
+
+    // Called (on the EDT) when views are defined, removed or refreshed at midnight; counts change with the list.
+    public void addListener(Runnable r) { listeners.add(r); }
+
+    // Run r on the EDT just after each local midnight, after the views are refreshed (same timer).
+    void onMidnight(Runnable r) { midnightHooks.add(r); scheduleMidnight(); }
+
+    // The view materializing this query, if any (same query text).
+    View viewFor(Query q) {
+        if (q.isEmpty()) return null;
+        String text = q.toString();
+        for (View v : views.values()) if (v.compiled.toString().equals(text)) return v;
+        return null;
+    }
+
+    BitSet members(View v) { return v.members.toBitSet(); }
+
+    // Recompile and refill the views whose query depends on the date, then run the midnight hooks.
+    void rollover() {
+        boolean any = false;
+        for (View v : views.values()) {
+            if (!v.compiled.relative()) continue;
+            v.compiled = Query.compile(v.query);
+            fill(v);
+            any = true;
+        }
+        if (any) changed();
+        for (Runnable r : midnightHooks) r.run();
+    }
+
+    private void fill(View v) {
+        for (int doc = 0; doc < table.capacity(); doc++) {
+            Task t = table.task(doc);
+            if (t != null && v.compiled.matches(t)) v.members.add(doc); else v.members.remove(doc);
+        }
+    }
+
+    private void scheduleMidnight() {
+        if (midnight != null) return;
+        midnight = new Timer(delayToMidnight(), e -> {
+            rollover();
+            midnight.setInitialDelay(delayToMidnight());
+            midnight.restart();
+        });
+        midnight.setRepeats(false);
+        midnight.start();
+    }
+
+    // Milliseconds to just after the next local midnight.
+    private static int delayToMidnight() {
+        Calendar c = Calendar.getInstance();
+        c.add(Calendar.DAY_OF_MONTH, 1);
+        c.set(Calendar.HOUR_OF_DAY, 0); c.set(Calendar.MINUTE, 0); c.set(Calendar.SECOND, 1); c.set(Calendar.MILLISECOND, 0);
+        return (int) Math.max(1000, c.getTimeInMillis() - System.currentTimeMillis());
+    }
+
+    private void changed() { for (Runnable r : listeners) r.run(); }
+
+    // ---- table deltas ----
+
+    @Override public void indexed(int doc, Task t) { updated(doc, t); }
+
+    @Override public void unindexed(int doc) { for (View v : views.values()) v.members.remove(doc); }
+
+    @Override public void updated(int doc, Task t) {
+        for (View v : views.values()) if (v.compiled.matches(t)) v.members.add(doc); else v.members.remove(doc);
+    }
+}
@@ -0,0 +1,200 @@
+package todo.view;
+
+import todo.model.Task;
+
+import java.util.Arrays;
+
+// Sort keys per document, kept current from the DocTable deltas so that ordering rows never touches
+// a Task or allocates. Every key is a long column whose unsigned order is the sort order: created and
+// due dates (missing due = last), priority (highest first), the manual rank and the title, as its first eight
+// lower-cased chars packed into two longs, with the cached lower-cased title behind them for ties.
+// sort() is an LSD radix sort over those columns (bytes that are the same in every row are skipped),
+// followed by a merge sort of the few runs whose packed title prefix ties. Each Sorter keeps its
+// scratch arrays (one per sorting thread), so re-sorting a million rows allocates nothing.
+final class SortKeys implements DocTable.Sink {
+    static final int CREATED = 0, TITLE = 1, DUE = 2, PRIORITY = 3, RANK = 5;
+    private static final int TITLE_TAIL = 4; // chars 4..7 of the title, compared after TITLE
+
+    private final DocTable table;
+    private final long[][] cols = new long[6][16]; // key -> document -> value (unsigned order)
+    private String[] title = new String[16];       // document -> lower-cased title
+    private String[] rawTitle = new String[16];    // document -> title it was folded from
+    private final ThreadLocal<Sorter> poolSorters = ThreadLocal.withInitial(Sorter::new);
+
+    SortKeys(DocTable table) {
+        this.table = table;
+        for (int doc = 0; doc < table.capacity(); doc++) {
+            Task t = table.task(doc);
+            if (t != null) indexed(doc, t);
+        }
+        table.addSink(this);
+    }
+
+    // Sort box value -> key columns, most significant first. "A › B › C" picks the keys explicitly;
+    // the single-key choices keep their title tie-break.
+    static int[] spec(String sort) {
+        if (sort == null) return new int[]{CREATED};
+        switch (sort) {
+            case "Title": return new int[]{TITLE};
+            case "Due Soon": return new int[]{DUE, TITLE};
+            case "Priority": return new int[]{PRIORITY, TITLE};
+            case "Manual": return new int[]{RANK};
+            default:
+        }
+        String[] names = sort.split("[›>]");
+        int[] spec = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            spec[i] = switch (names[i].trim()) {
+                case "Title" -> TITLE;
+                case "Due", "Due Soon" -> DUE;
+                case "Priority" -> PRIORITY;
+                case "Manual" -> RANK;
+                default -> CREATED;
+            };
+        }
+        return spec;
+    }
+
+    // Order of two documents under spec (0 = equal keys; callers break ties by source position).
+    int compare(int[] spec, int a, int b) {
+        for (int k : spec) {
+            int c = Long.compareUnsigned(cols[k][a], cols[k][b]);
+            if (c == 0 && k == TITLE) {
+                c = Long.compareUnsigned(cols[TITLE_TAIL][a], cols[TITLE_TAIL][b]);
+                if (c == 0) c = title[a].compareTo(title[b]);
+            }
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    // A Sorter for the calling thread (fork/join workers, see ParallelRebuild).
+    Sorter localSorter() { return poolSorters.get(); }
+
+    // Sort scratch for one thread at a time.
+    final class Sorter {
+        private long[] keys = new long[0], keys2 = new long[0];
+        private int[] rows2 = new int[0], slice = new int[0];
+        private final int[] counts = new int[8 * 256];
+        private int[] docOf;
+
+        // Sorts rows[0..n) (source positions, ascending on entry) by spec, ties kept in position order.
+        // docOf maps source positions to documents (DocTable's, or a snapshot of it).
+        void sort(int[] rows, int n, int[] spec, int[] docOf) {
+            if (n < 2) return;
+            this.docOf = docOf;
+            if (keys.length < n) {
+                int cap = Math.max(n, keys.length + (keys.length >> 1));
+                keys = new long[cap]; keys2 = new long[cap]; rows2 = new int[cap];
+            }
+            boolean byTitle = false;
+            for (int j = spec.length - 1; j >= 0; j--) {
+                if (spec[j] == TITLE) { radix(rows, n, TITLE_TAIL); byTitle = true; }
+                radix(rows, n, spec[j]);
+            }
+            if (!byTitle) return;
+            // rows whose packed keys tie may still differ further into the title
+            for (int i = 0; i < n; ) {
+                int j = i + 1;
+                while (j < n && samePacked(spec, docOf[rows[i]], docOf[rows[j]])) j++;
+                if (j - i > 1) mergeSort(rows, i, j, spec);
+                i = j;
+            }
+        }
+
+        // sort() of rows[lo..hi) in place.
+        void sortRange(int[] rows, int lo, int hi, int[] spec, int[] docOf) {
+            int n = hi - lo;
+            if (slice.length < n) slice = new int[n];
+            System.arraycopy(rows, lo, slice, 0, n);
+            sort(slice, n, spec, docOf);
+            System.arraycopy(slice, 0, rows, lo, n);
+        }
+
+        // One stable LSD pass per byte of column k that is not the same in every row.
+        private void radix(int[] rows, int n, int k) {
+            long[] col = cols[k], src = keys, dst = keys2;
+            int[] from = rows, to = rows2;
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                long v = src[i] = col[docOf[rows[i]]];
+                for (int b = 0; b < 8; b++) counts[b << 8 | (int) (v >>> (b << 3)) & 0xff]++;
+            }
+            for (int b = 0; b < 8; b++) {
+                int shift = b << 3, base = b << 8;
+                if (counts[base | (int) (src[0] >>> shift) & 0xff] == n) continue;
+                for (int d = 0, sum = 0; d < 256; d++) { int c = counts[base | d]; counts[base | d] = sum; sum += c; }
+                for (int i = 0; i < n; i++) {
+                    int at = counts[base | (int) (src[i] >>> shift) & 0xff]++;
+                    dst[at] = src[i];
+                    to[at] = from[i];
+                }
+                long[] ks = src; src = dst; dst = ks;
+                int[] rs = from; from = to; to = rs;
+            }
+            if (from != rows) System.arraycopy(from, 0, rows, 0, n);
+        }
+
+        private boolean samePacked(int[] spec, int a, int b) {
+            for (int k : spec) if (cols[k][a] != cols[k][b]) return false;
+            return cols[TITLE_TAIL][a] == cols[TITLE_TAIL][b];
+        }
+
+        // Stable merge sort of rows[lo..hi) by the full compare, using rows2 as scratch.
+        private void mergeSort(int[] rows, int lo, int hi, int[] spec) {
+            if (hi - lo <= 16) {
+                for (int i = lo + 1; i < hi; i++) {
+                    int r = rows[i], d = docOf[r], j = i - 1;
+                    while (j >= lo && compare(spec, docOf[rows[j]], d) > 0) { rows[j + 1] = rows[j]; j--; }
+                    rows[j + 1] = r;
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            mergeSort(rows, lo, mid, spec);
+            mergeSort(rows, mid, hi, spec);
+            if (compare(spec, docOf[rows[mid - 1]], docOf[rows[mid]]) <= 0) return;
+            System.arraycopy(rows, lo, rows2, lo, hi - lo);
+            for (int i = lo, a = lo, b = mid; i < hi; i++) {
+                if (b >= hi || a < mid && compare(spec, docOf[rows2[a]], docOf[rows2[b]]) <= 0) rows[i] = rows2[a++];
+                else rows[i] = rows2[b++];
+            }
+        }
+    }
+
+    // ---- table deltas ----
+
+    @Override public void indexed(int doc, Task t) {
+        if (doc >= title.length) {
+            int n = Math.max(doc + 1, title.length * 2);
+            for (int k = 0; k < cols.length; k++) cols[k] = Arrays.copyOf(cols[k], n);
+            title = Arrays.copyOf(title, n);
+            rawTitle = Arrays.copyOf(rawTitle, n);
+        }
+        rawTitle[doc] = null;
+        updated(doc, t);
+    }
+
+    @Override public void unindexed(int doc) { title[doc] = null; rawTitle[doc] = null; }
+
+    @Override public void updated(int doc, Task t) {
+        cols[CREATED][doc] = t.createdAtMillis ^ Long.MIN_VALUE;
+        cols[DUE][doc] = (t.dueAtMillis == null ? Long.MAX_VALUE : t.dueAtMillis) ^ Long.MIN_VALUE;
+        cols[PRIORITY][doc] = 3 - FilteredSortedListModel.priorityRank(t.priority);
+        cols[RANK][doc] = t.rank ^ Long.MIN_VALUE;
+        String raw = t.title == null ? "" : t.title;
+        if (raw == rawTitle[doc]) return;
+        String s = raw.toLowerCase();
+        rawTitle[doc] = raw;
+        title[doc] = s;
+        cols[TITLE][doc] = pack(s, 0);
+        cols[TITLE_TAIL][doc] = pack(s, 4);
+    }
+
+    // Four chars from `from` as one long (missing chars = 0), so unsigned order = String order.
+    private static long pack(String s, int from) {
+        long p = 0;
+        for (int i = from; i < from + 4; i++) p = p << 16 | (i < s.length() ? s.charAt(i) : 0);
+        return p;
+    }
+}
@@ -0,0 +1,83 @@
+package todo.view;
+
+import todo.model.Priority;
+import todo.model.Task;
+import todo.util.DateUtil;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+// Running totals over the task list for the status bar and for monitoring: total, completed, overdue
+// (open and due before today, like the Overdue preset), per priority and per tag. Total, completed,
+// priority and tag counts are the FacetIndex bitmap cardinalities, which the deltas already keep
+// current; overdue is a bitmap this sink maintains itself and refills from the due index at local
+// midnight (rollover, run by the SavedViews timer). So a change costs O(1) here and every count is an O(1) read. Listeners run once per
+// event-queue turn, however many changes it brought (a bulk edit refreshes the status bar once).
+public final class TaskStats implements DocTable.Sink {
+    private final FacetIndex facets;
+    private Bitmap overdue = new Bitmap();
+    private long today = DateUtil.startOfDayMillis(new Date());
+    private final List<Runnable> listeners = new ArrayList<>();
+    private boolean queued;
+
+    TaskStats(DocTable table, FacetIndex facets) {
+        this.facets = facets;
+        for (int doc = 0; doc < table.capacity(); doc++) {
+            Task t = table.task(doc);
+            if (t != null && isOverdue(t)) overdue.add(doc);
+        }
+        table.addSink(this);
+    }
+
+    public int total() { return facets.count(); }
+    public int completed() { return facets.completedCount(); }
+    public int open() { return total() - completed(); }
+    public int overdue() { return overdue.cardinality(); }
+    public int priority(Priority p) { return facets.priorityCount(p); }
+    public int tag(String tag) { return facets.tagCount(tag); }
+    public Map<String, Integer> tags() { return facets.tagCounts(); }
+
+    // Called on the EDT after the counts changed (coalesced) and at midnight.
+    public void addListener(Runnable r) { listeners.add(r); }
+
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder("tasks: ").append(total()).append(" total, ").append(completed()).append(" completed, ")
+                .append(overdue()).append(" overdue;");
+        for (Priority p : Priority.values()) sb.append(' ').append(p).append(' ').append(priority(p));
+        return sb.toString();
+    }
+
+    private boolean isOverdue(Task t) { return !t.completed && t.dueAtMillis != null && t.dueAtMillis < today; }
+
+    void rollover() {
+        today = DateUtil.startOfDayMillis(new Date());
+        Bitmap b = new Bitmap();
+        BitSet due = facets.dueBetween(Long.MIN_VALUE, today - 1);
+        for (int doc = due.nextSetBit(0); doc >= 0; doc = due.nextSetBit(doc + 1)) if (!facets.isCompleted(doc)) b.add(doc);
+        overdue = b;
+        notifyListeners();
+    }
+
+    private void changed() {
+        if (queued || listeners.isEmpty()) return;
+        queued = true;
+        SwingUtilities.invokeLater(() -> { queued = false; notifyListeners(); });
+    }
+
+    private void notifyListeners() { for (Runnable r : listeners) r.run(); }
+
+    // ---- table deltas ----
+
+    @Override public void indexed(int doc, Task t) { updated(doc, t); }
+
+    @Override public void unindexed(int doc) { overdue.remove(doc); changed(); }
+
+    @Override public void updated(int doc, Task t) {
+        if (isOverdue(t)) overdue.add(doc); else overdue.remove(doc);
+        changed();
+    }
+}
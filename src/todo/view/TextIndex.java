@@ -0,0 +1,241 @@
+package todo.view;
+
+import todo.model.Task;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// In-memory inverted index for plain-text search: every case-folded trigram of a task's title and
+// note maps to a sorted postings list of document numbers (see DocTable). A search term of three or
+// more characters is answered by intersecting the postings of its trigrams, smallest first; the result
+// is a candidate set that the query still verifies, so matches stay exact substring matches. Shorter
+// terms cannot be narrowed and return null (scan). The postings are built on the first text lookup
+// and kept up to date from the table's deltas after that, so lists that are never searched never load
+// their out-of-line notes for it. On large lists the search thread builds them instead (prepare() from
+// a snapshot, install() on the EDT if the list has not changed since).
+public final class TextIndex implements DocTable.Sink {
+    private final DocTable table;
+    private boolean built;
+    private long[][] keysOf = new long[16][]; // document -> the trigram keys it is posted under
+    private int docCount;
+    private KeyTable postings = new KeyTable();
+    private long postingCount;
+    private long lookups, lookupNanos, lastLookupNanos;
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+            if (size == 0 || docs[size - 1] < doc) { docs[size++] = doc; return; } // new docs usually append
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i >= 0) return;
+            i = -i - 1;
+            System.arraycopy(docs, i, docs, i + 1, size - i);
+            docs[i] = doc;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i < 0) return false;
+            System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+            size--;
+            return true;
+        }
+    }
+
+    // Open-addressing map from trigram key to postings, so indexing does not box a Long per trigram.
+    // Emptied postings stay in place (the key space is bounded by the distinct trigrams ever seen).
+    private static final class KeyTable {
+        long[] keys = new long[1024];
+        Postings[] values = new Postings[1024];
+        int size;
+
+        Postings get(long key) {
+            for (int i = slot(key, keys.length); values[i] != null; i = (i + 1) & (keys.length - 1)) if (keys[i] == key) return values[i];
+            return null;
+        }
+
+        Postings getOrAdd(long key) {
+            int i = slot(key, keys.length);
+            for (; values[i] != null; i = (i + 1) & (keys.length - 1)) if (keys[i] == key) return values[i];
+            Postings p = new Postings();
+            keys[i] = key; values[i] = p;
+            if (++size * 2 > keys.length) grow();
+            return p;
+        }
+
+        void clear() { keys = new long[1024]; values = new Postings[1024]; size = 0; }
+
+        private void grow() {
+            long[] ok = keys; Postings[] ov = values;
+            keys = new long[ok.length * 2]; values = new Postings[ok.length * 2];
+            for (int j = 0; j < ok.length; j++) {
+                if (ov[j] == null) continue;
+                int i = slot(ok[j], keys.length);
+                while (values[i] != null) i = (i + 1) & (keys.length - 1);
+                keys[i] = ok[j]; values[i] = ov[j];
+            }
+        }
+
+        private static int slot(long key, int length) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & (length - 1);
+        }
+    }
+
+    TextIndex(DocTable table) { this.table = table; table.addSink(this); }
+
+    // Candidate documents whose text may contain needle (already case-folded or not), or null when the
+    // needle is too short to narrow the search.
+    BitSet lookup(String needle) {
+        if (needle.length() < 3) return null;
+        long t0 = System.nanoTime();
+        ensureBuilt();
+        long[] keys = trigrams(needle, null);
+        Postings[] lists = new Postings[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lists[i] = postings.get(keys[i]);
+            if (lists[i] == null || lists[i].size == 0) return record(t0, new BitSet());
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] acc = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int n = acc.length;
+        for (int i = 1; i < lists.length && n > 0; i++) n = intersect(acc, n, lists[i]);
+        BitSet out = new BitSet(table.capacity());
+        for (int i = 0; i < n; i++) out.set(acc[i]);
+        return record(t0, out);
+    }
+
+    // Postings built from a snapshot (tasks by position, docOf = position -> document), off the EDT.
+    static final class Build {
+        private final long[][] keysOf;
+        private final KeyTable postings = new KeyTable();
+        private int docCount;
+        private long postingCount;
+
+        Build(Task[] tasks, int[] docOf) {
+            int capacity = 16;
+            for (int d : docOf) capacity = Math.max(capacity, d + 1);
+            Task[] byDoc = new Task[capacity];
+            for (int pos = 0; pos < tasks.length; pos++) byDoc[docOf[pos]] = tasks[pos];
+            keysOf = new long[capacity][];
+            for (int doc = 0; doc < capacity; doc++) { // ascending, so every posting appends
+                if (byDoc[doc] == null) continue;
+                long[] keys = keysOf[doc] = trigrams(byDoc[doc]);
+                for (long k : keys) postings.getOrAdd(k).add(doc);
+                postingCount += keys.length;
+                docCount++;
+            }
+        }
+    }
+
+    boolean isBuilt() { return built; }
+
+    // Adopt postings prepared for the current list (the caller checks that it has not changed).
+    void install(Build b) {
+        if (built) return;
+        keysOf = b.keysOf; postings = b.postings; docCount = b.docCount; postingCount = b.postingCount;
+        built = true;
+    }
+
+    public int documentCount() { return docCount; }
+    public int keyCount() { return postings.size; }
+    public long postingCount() { return postingCount; }
+    public long lastLookupMicros() { return lastLookupNanos / 1000; }
+
+    @Override public String toString() {
+        if (!built) return "text index: not built";
+        return "text index: " + docCount + " tasks, " + postings.size + " keys, " + postingCount + " postings; lookup "
+                + lastLookupMicros() + " µs (avg " + (lookups == 0 ? 0 : lookupNanos / lookups / 1000) + " µs over " + lookups + ")";
+    }
+
+    // ---- table deltas (ignored until the first lookup builds the postings) ----
+
+    @Override public void indexed(int doc, Task t) {
+        if (!built) return;
+        if (doc >= keysOf.length) keysOf = Arrays.copyOf(keysOf, Math.max(doc + 1, keysOf.length * 2));
+        docCount++;
+        repost(doc, trigrams(t));
+    }
+
+    @Override public void unindexed(int doc) {
+        if (!built) return;
+        repost(doc, new long[0]);
+        keysOf[doc] = null;
+        docCount--;
+    }
+
+    @Override public void updated(int doc, Task t) { if (built) repost(doc, trigrams(t)); }
+
+    private void ensureBuilt() {
+        if (built) return;
+        built = true;
+        keysOf = new long[Math.max(16, table.capacity())][];
+        for (int doc = 0; doc < table.capacity(); doc++) {
+            Task t = table.task(doc);
+            if (t != null) indexed(doc, t);
+        }
+    }
+
+    // Move doc from its current keys to keys (both sorted); unchanged keys are not touched.
+    private void repost(int doc, long[] keys) {
+        long[] old = keysOf[doc] == null ? new long[0] : keysOf[doc];
+        int i = 0, j = 0;
+        while (i < old.length || j < keys.length) {
+            if (j == keys.length || (i < old.length && old[i] < keys[j])) {
+                Postings p = postings.get(old[i]);
+                if (p != null && p.remove(doc)) postingCount--;
+                i++;
+            } else if (i == old.length || keys[j] < old[i]) {
+                postings.getOrAdd(keys[j]).add(doc);
+                postingCount++;
+                j++;
+            } else { i++; j++; }
+        }
+        keysOf[doc] = keys;
+    }
+
+    private static long[] trigrams(Task t) {
+        long[] keys = trigrams(t.title == null ? "" : t.title, null);
+        return t.hasNote() ? trigrams(t.note(), keys) : keys;
+    }
+
+    // Sorted, distinct trigram keys of s (merged with into, if given). Characters are folded the way
+    // String.regionMatches(true, ...) compares them, so a candidate set never misses a real match.
+    private static long[] trigrams(String s, long[] into) {
+        int n = s == null ? 0 : Math.max(0, s.length() - 2);
+        int base = into == null ? 0 : into.length;
+        long[] keys = into == null ? new long[n] : Arrays.copyOf(into, base + n);
+        for (int i = 0; i < n; i++) keys[base + i] = ((long) fold(s.charAt(i)) << 32) | ((long) fold(s.charAt(i + 1)) << 16) | fold(s.charAt(i + 2));
+        Arrays.sort(keys);
+        int w = 0;
+        for (int i = 0; i < keys.length; i++) if (w == 0 || keys[i] != keys[w - 1]) keys[w++] = keys[i];
+        return w == keys.length ? keys : Arrays.copyOf(keys, w);
+    }
+
+    private static char fold(char c) {
+        if (c < 0x80) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    // Keep the entries of acc[0..n) that are also in p; returns the new length.
+    private static int intersect(int[] acc, int n, Postings p) {
+        int w = 0, j = 0;
+        for (int i = 0; i < n && j < p.size; ) {
+            if (acc[i] < p.docs[j]) i++;
+            else if (acc[i] > p.docs[j]) j++;
+            else { acc[w++] = acc[i]; i++; j++; }
+        }
+        return w;
+    }
+
+    private BitSet record(long t0, BitSet result) {
+        lastLookupNanos = System.nanoTime() - t0;
+        lookupNanos += lastLookupNanos;
+        lookups++;
+        return result;
+    }
+}